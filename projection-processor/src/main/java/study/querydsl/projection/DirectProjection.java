@@ -0,0 +1,19 @@
+package study.querydsl.projection;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * 리플렉션 없는 DTO 프로젝션 생성
+ *
+ * 생성자에 붙이면 생성자 호출, 클래스에 붙이면 기본 생성자 + setter 호출 코드를 가진
+ * {DTO 이름}Projection 클래스를 컴파일 시점에 만든다.
+ *
+ * ex) queryFactory.select(new MemberDtoProjection(member.username, member.age))
+ * */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.CONSTRUCTOR, ElementType.TYPE})
+public @interface DirectProjection {
+}
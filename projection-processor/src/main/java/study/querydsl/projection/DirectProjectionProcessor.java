@@ -0,0 +1,206 @@
+package study.querydsl.projection;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * @DirectProjection 이 붙은 DTO 마다 Querydsl FactoryExpression 구현 클래스를 생성한다.
+ *
+ * Projections.bean / fields / constructor 는 setter, 필드, 생성자를 리플렉션으로 호출하지만
+ * 생성된 클래스는 newInstance 에서 생성자와 setter 를 직접 호출한다.
+ * */
+@SupportedAnnotationTypes("study.querydsl.projection.DirectProjection")
+public class DirectProjectionProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(DirectProjection.class)) {
+            if (element.getKind() == ElementKind.CONSTRUCTOR) {
+                ExecutableElement constructor = (ExecutableElement) element;
+                if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                    error(element, "@DirectProjection 생성자는 private 일 수 없습니다.");
+                    continue;
+                }
+                List<Arg> args = new ArrayList<>();
+                for (VariableElement parameter : constructor.getParameters()) {
+                    args.add(new Arg(parameter.getSimpleName().toString(), parameter.asType()));
+                }
+                write((TypeElement) constructor.getEnclosingElement(), args, true);
+            } else if (element.getKind() == ElementKind.CLASS) {
+                List<Arg> args = new ArrayList<>();
+                for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+                    if (!field.getModifiers().contains(Modifier.STATIC)) {
+                        args.add(new Arg(field.getSimpleName().toString(), field.asType()));
+                    }
+                }
+                write((TypeElement) element, args, false);
+            }
+        }
+        return true;
+    }
+
+    private void write(TypeElement dto, List<Arg> args, boolean constructor) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(dto).getQualifiedName().toString();
+        String dtoName = dto.getQualifiedName().toString();
+        String className = dto.getSimpleName() + "Projection";
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, dto);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                if (!packageName.isEmpty()) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("import com.querydsl.core.types.Expression;");
+                out.println("import com.querydsl.core.types.FactoryExpressionBase;");
+                out.println("import com.querydsl.core.types.Visitor;");
+                out.println();
+                out.println("import java.util.Arrays;");
+                out.println("import java.util.Collections;");
+                out.println("import java.util.List;");
+                out.println();
+                out.println("/**");
+                out.println(" * " + dto.getSimpleName() + " 프로젝션 (DirectProjectionProcessor 가 생성, 수정 금지)");
+                out.println(" */");
+                out.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")");
+                out.println("public final class " + className + " extends FactoryExpressionBase<" + dtoName + "> {");
+                out.println();
+                out.println("    private static final long serialVersionUID = 1L;");
+                out.println();
+                out.println("    private final List<Expression<?>> args;");
+                out.println();
+
+                // 생성자 : 인자 순서대로 Expression 을 받는다.
+                StringBuilder params = new StringBuilder();
+                StringBuilder names = new StringBuilder();
+                for (int i = 0; i < args.size(); i++) {
+                    Arg arg = args.get(i);
+                    if (i > 0) {
+                        params.append(", ");
+                        names.append(", ");
+                    }
+                    params.append("Expression<").append(boxed(arg.type)).append("> ").append(arg.name);
+                    names.append(arg.name);
+                }
+                out.println("    public " + className + "(" + params + ") {");
+                out.println("        super(" + dtoName + ".class);");
+                out.println("        this.args = Collections.unmodifiableList(Arrays.<Expression<?>>asList(" + names + "));");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public List<Expression<?>> getArgs() {");
+                out.println("        return args;");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    @SuppressWarnings(\"unchecked\")");
+                out.println("    public " + dtoName + " newInstance(Object... a) {");
+                if (constructor) {
+                    StringBuilder values = new StringBuilder();
+                    for (int i = 0; i < args.size(); i++) {
+                        if (i > 0) {
+                            values.append(", ");
+                        }
+                        values.append(value(args.get(i), i));
+                    }
+                    out.println("        return new " + dtoName + "(" + values + ");");
+                } else {
+                    out.println("        " + dtoName + " dto = new " + dtoName + "();");
+                    for (int i = 0; i < args.size(); i++) {
+                        Arg arg = args.get(i);
+                        out.println("        dto." + setter(arg.name) + "(" + value(arg, i) + ");");
+                    }
+                    out.println("        return dto;");
+                }
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public <R, C> R accept(Visitor<R, C> v, C context) {");
+                out.println("        return v.visit(this, context);");
+                out.println("    }");
+                out.println("}");
+            }
+        } catch (IOException e) {
+            error(dto, "프로젝션 클래스 생성 실패 : " + e.getMessage());
+        }
+    }
+
+    // 기본 타입은 null 이면 기본값을 사용한다. (left join 등으로 null 이 올 수 있음)
+    private String value(Arg arg, int index) {
+        String cast = "(" + boxed(arg.type) + ") a[" + index + "]";
+        if (!arg.type.getKind().isPrimitive()) {
+            return cast;
+        }
+        return "(a[" + index + "] == null ? " + defaultValue(arg.type) + " : " + cast + ")";
+    }
+
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\u0000'";
+            case LONG:
+                return "0L";
+            case FLOAT:
+                return "0F";
+            case DOUBLE:
+                return "0D";
+            case BYTE:
+                return "(byte) 0";
+            case SHORT:
+                return "(short) 0";
+            default:
+                return "0";
+        }
+    }
+
+    private String setter(String name) {
+        return "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Arg {
+        private final String name;
+        private final TypeMirror type;
+
+        private Arg(String name, TypeMirror type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
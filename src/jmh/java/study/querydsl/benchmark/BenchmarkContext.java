@@ -0,0 +1,40 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+
+/*
+ * 벤치마크용 스프링 컨텍스트
+ * 인메모리 H2 프로필(mem)을 사용하고, SQL 로그는 끈다. (로그 출력 비용이 측정값을 덮어버림)
+ * */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    // 내장 톰캣 포함 (server.port 로 포트 지정, 0 이면 임의 포트)
+    public static ConfigurableApplicationContext startWeb(String... properties) {
+        return start(WebApplicationType.SERVLET, properties);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... properties) {
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(type)
+                .properties(
+                        "spring.profiles.active=mem",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "querydsl.cache-statistics.enabled=false",
+                        "decorator.datasource.p6spy.enable-logging=false",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "logging.level.org.hibernate.type=warn")
+                .properties(properties)
+                .run();
+    }
+}
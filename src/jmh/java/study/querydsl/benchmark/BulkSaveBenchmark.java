@@ -0,0 +1,75 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 단건 저장(save, JDBC 배치 없음) vs 대량 저장(saveAll, JDBC 배치 + chunk flush/clear)
+ * 결과 단위는 초당 저장 row 수 (OperationsPerInvocation = ROWS)
+ *
+ * ./gradlew jmh -Pjmh.includes=BulkSaveBenchmark
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BulkSaveBenchmark {
+
+    static final int ROWS = 1_000;
+
+    @Param({"single", "batch"})
+    String mode;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate transactionTemplate;
+    EntityManager em;
+
+    @Setup
+    public void setUp() {
+        // single 모드는 기존 경로와 같게 JDBC 배치를 끈다.
+        String batchSize = "batch".equals(mode) ? "100" : "0";
+        context = BenchmarkContext.start("spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        em = context.getBean(EntityManager.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void save() {
+        List<Member> members = newMembers();
+        transactionTemplate.executeWithoutResult(status -> {
+            if ("batch".equals(mode)) {
+                memberJpaRepository.saveAll(members, 100);
+            } else {
+                em.persist(members.get(0).getTeam());
+                for (Member m : members) {
+                    memberJpaRepository.save(m);
+                }
+            }
+        });
+    }
+
+    private List<Member> newMembers() {
+        Team team = new Team("team");
+        List<Member> members = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            members.add(new Member("member" + i, i % 100, team));
+        }
+        return members;
+    }
+}
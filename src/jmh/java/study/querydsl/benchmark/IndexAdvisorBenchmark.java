@@ -0,0 +1,84 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.config.MemberDataSeeder;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.monitor.IndexAdvisor;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * IndexAdvisor 추천 인덱스 적용 전후 비교
+ *
+ * NONE        : 엔티티에 선언된 인덱스(idx_member_username)도 지우고 FK 인덱스만 남긴다.
+ * RECOMMENDED : 워크로드를 한번 기록해서 나온 추천 DDL 을 적용한다. (추천 목록은 setUp 에서 출력)
+ *
+ * ./gradlew jmh -Pjmh.includes=IndexAdvisorBenchmark
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndexAdvisorBenchmark {
+
+    public enum Indexes {
+        NONE, RECOMMENDED
+    }
+
+    @Param({"100000"})
+    int members;
+
+    @Param
+    Indexes indexes;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        context.getBean(MemberDataSeeder.class).seed(members, 10);
+        jdbcTemplate.execute("drop index if exists idx_member_username");
+
+        IndexAdvisor advisor = context.getBean(IndexAdvisor.class);
+        advisor.setRecording(true);
+        workload();
+        advisor.setRecording(false);
+        List<IndexRecommendation> recommendations = advisor.recommend();
+        for (IndexRecommendation recommendation : recommendations) {
+            System.out.println(recommendation.getDdl() + " / " + recommendation.getAnnotation());
+            if (indexes == Indexes.RECOMMENDED) {
+                jdbcTemplate.execute(recommendation.getDdl());
+            }
+        }
+        jdbcTemplate.execute("analyze");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // 핫패스 : username equality, age 범위 + 팀 이름 (search)
+    @Benchmark
+    public int workload() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int age = random.nextInt(100);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team" + random.nextInt(members / 10));
+        condition.setAgeGoe(age);
+        condition.setAgeLoe(age + 5);
+
+        return memberJpaRepository.findByUsername_Querydsl("member" + random.nextInt(members)).size()
+                + memberJpaRepository.search(condition).size();
+    }
+}
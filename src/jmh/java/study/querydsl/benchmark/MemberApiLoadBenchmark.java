@@ -0,0 +1,69 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.config.MemberDataSeeder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * GET /api/members 부하 테스트 (requests/sec)
+ *
+ * conditional = false : 매번 DB 조회 + JSON 직렬화 (200)
+ * conditional = true  : If-None-Match 로 재검증 -> 변경이 없으면 304 (DB 조회, 직렬화 없음)
+ *
+ * ./gradlew jmh -Pjmh.includes=MemberApiLoadBenchmark
+ * 앱은 임의 포트로 띄우고, 스레드 수는 @Threads 로 조절한다. (N+1 감지 필터는 끈다.)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class MemberApiLoadBenchmark {
+
+    @Param({"false", "true"})
+    boolean conditional;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    URI uri;
+    String etag;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        context = BenchmarkContext.startWeb("server.port=0", "querydsl.n-plus-one.enabled=false");
+        context.getBean(MemberDataSeeder.class).seed(10_000, 10);
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        uri = URI.create("http://localhost:" + port + "/api/members?ageGoe=20&ageLoe=40&size=50");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        etag = first.headers().firstValue("ETag").orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int request() throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri);
+        if (conditional) {
+            request.header("If-None-Match", etag);
+        }
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        int expected = conditional ? 304 : 200;
+        if (response.statusCode() != expected) {
+            throw new IllegalStateException("unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.repository.support.MeteredJPAQueryFactory;
+import study.querydsl.repository.support.SubqueryRewriter;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/*
+ * QueryMetrics 기록 비용 (목표 : 호출당 1µs 미만)
+ *
+ * plain   : JPAQueryFactory 로 단건 조회
+ * metered : MeteredJPAQueryFactory 로 같은 조회 (metered - plain = 메트릭 비용)
+ * record  : DB 접근 없이 QueryMetrics.record 만 (Meter 조회 + 타이머 / 분포 기록)
+ *
+ * ./gradlew jmh -Pjmh.includes=MeteredQueryBenchmark
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeteredQueryBenchmark {
+
+    private static final List<Member> EMPTY = Collections.emptyList();
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate transactionTemplate;
+    QueryMetrics metrics;
+    JPAQueryFactory plain;
+    JPAQueryFactory metered;
+    Long memberId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("querydsl.metrics.enabled=true");
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        metrics = context.getBean(QueryMetrics.class);
+        EntityManager em = context.getBean(EntityManager.class);
+        plain = new JPAQueryFactory(em);
+        metered = new MeteredJPAQueryFactory(em, metrics, context.getBean(SubqueryRewriter.class));
+
+        memberId = transactionTemplate.execute(status -> {
+            Member m = new Member("member1", 10);
+            em.persist(m);
+            return m.getId();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> plain() {
+        return transactionTemplate.execute(status -> plain.selectFrom(member).where(member.id.eq(memberId)).fetch());
+    }
+
+    @Benchmark
+    public List<Member> metered() {
+        return transactionTemplate.execute(status -> metered.selectFrom(member).where(member.id.eq(memberId)).fetch());
+    }
+
+    @Benchmark
+    public List<Member> record() {
+        return metrics.record("fetch", "Member/1", () -> EMPTY, List::size);
+    }
+}
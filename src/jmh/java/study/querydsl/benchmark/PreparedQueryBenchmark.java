@@ -0,0 +1,69 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/*
+ * findByUsername_Querydsl (매번 메타데이터 생성 + JPQL 직렬화) vs findByUsername_Prepared (파라미터 바인딩만)
+ *
+ * ./gradlew jmh -Pjmh.includes=PreparedQueryBenchmark
+ * gc 프로파일러의 gc.alloc.rate.norm 으로 호출당 할당 바이트를 비교한다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreparedQueryBenchmark {
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate transactionTemplate;
+    EntityManager em;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        em = context.getBean(EntityManager.class);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 100; i++) {
+                memberJpaRepository.save(new Member("member" + i, i));
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> querydsl() {
+        return transactionTemplate.execute(status -> memberJpaRepository.findByUsername_Querydsl("member1"));
+    }
+
+    @Benchmark
+    public List<Member> prepared() {
+        return transactionTemplate.execute(status -> memberJpaRepository.findByUsername_Prepared("member1"));
+    }
+
+    // DB 접근 없이 쿼리 생성 + JPQL 직렬화 비용만 측정 (prepared 에서 제거되는 부분)
+    @Benchmark
+    public String serializeOnly() {
+        return new JPAQueryFactory(em)
+                .selectFrom(member)
+                .where(member.username.eq("member1"))
+                .toString();
+    }
+}
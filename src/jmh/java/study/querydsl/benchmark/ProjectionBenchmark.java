@@ -0,0 +1,68 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/*
+ * DTO 프로젝션 방식별 row 매핑 비용 (1M rows)
+ * DB 조회 결과(Object[])를 DTO 로 바꾸는 newInstance 만 측정한다.
+ *
+ * bean        : Projections.bean        -> setter 리플렉션 호출
+ * fields      : Projections.fields      -> 필드 리플렉션 set
+ * constructor : Projections.constructor -> 생성자 리플렉션 호출
+ * direct      : @DirectProjection 생성 클래스 -> 생성자 직접 호출
+ *
+ * ./gradlew jmh -Pjmh.includes=ProjectionBenchmark
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProjectionBenchmark {
+
+    static final int ROWS = 1_000_000;
+
+    @Param({"bean", "fields", "constructor", "direct"})
+    String style;
+
+    Object[][] rows;
+    FactoryExpression<MemberDto> projection;
+
+    @Setup
+    public void setUp() {
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{"member" + i, i % 100};
+        }
+
+        switch (style) {
+            case "bean":
+                projection = Projections.bean(MemberDto.class, member.username, member.age);
+                break;
+            case "fields":
+                projection = Projections.fields(MemberDto.class, member.username, member.age);
+                break;
+            case "constructor":
+                projection = Projections.constructor(MemberDto.class, member.username, member.age);
+                break;
+            default:
+                projection = new MemberDtoProjection(member.username, member.age);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void map(Blackhole bh) {
+        FactoryExpression<MemberDto> p = projection;
+        for (Object[] row : rows) {
+            bh.consume(p.newInstance(row));
+        }
+    }
+}
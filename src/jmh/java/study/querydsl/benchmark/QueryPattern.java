@@ -0,0 +1,107 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import study.querydsl.entity.QMember;
+
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * QuerydslBasicTest 에서 다루는 쿼리 패턴 목록
+ * 벤치마크 데이터 기준으로 값을 맞췄다. (member{i}, team{i})
+ * */
+public enum QueryPattern {
+
+    SELECT_FETCH_ONE(qf -> qf
+            .selectFrom(member)
+            .where(member.username.eq("member1"), member.age.eq(1))),
+
+    PAGING(qf -> qf
+            .selectFrom(member)
+            .orderBy(member.username.desc())
+            .offset(10)
+            .limit(20)),
+
+    AGGREGATION(qf -> qf
+            .select(member.count(), member.age.sum(), member.age.avg(), member.age.max(), member.age.min())
+            .from(member)),
+
+    GROUP_BY(qf -> qf
+            .select(team.name, member.age.avg())
+            .from(member)
+            .join(member.team, team)
+            .groupBy(team.name)),
+
+    JOIN(qf -> qf
+            .selectFrom(member)
+            .leftJoin(member.team, team)
+            .where(team.name.eq("team0"))),
+
+    THETA_JOIN(qf -> qf
+            .select(member)
+            .from(member, team)
+            .where(member.username.eq(team.name))),
+
+    JOIN_ON_FILTERING(qf -> qf
+            .select(member, team)
+            .from(member)
+            .leftJoin(member.team, team).on(team.name.eq("team0"))),
+
+    JOIN_ON_NO_RELATION(qf -> qf
+            .select(member, team)
+            .from(member)
+            .leftJoin(team).on(member.username.eq(team.name))),
+
+    FETCH_JOIN(qf -> qf
+            .selectFrom(member)
+            .join(member.team, team).fetchJoin()
+            .where(member.username.eq("member1"))),
+
+    SUB_QUERY(qf -> qf
+            .selectFrom(member)
+            .where(member.age.eq(
+                    JPAExpressions
+                            .select(Sub.MEMBER.age.max())
+                            .from(Sub.MEMBER)))),
+
+    SUB_QUERY_GOE(qf -> qf
+            .selectFrom(member)
+            .where(member.age.goe(
+                    JPAExpressions
+                            .select(Sub.MEMBER.age.avg())
+                            .from(Sub.MEMBER)))),
+
+    SUB_QUERY_IN(qf -> qf
+            .selectFrom(member)
+            .where(member.age.in(
+                    JPAExpressions
+                            .select(Sub.MEMBER.age)
+                            .from(Sub.MEMBER)
+                            .where(Sub.MEMBER.age.gt(90))))),
+
+    SELECT_SUB_QUERY(qf -> qf
+            .select(member.username,
+                    JPAExpressions
+                            .select(Sub.MEMBER.age.avg())
+                            .from(Sub.MEMBER))
+            .from(member));
+
+    private final Function<JPAQueryFactory, JPAQuery<?>> builder;
+
+    QueryPattern(Function<JPAQueryFactory, JPAQuery<?>> builder) {
+        this.builder = builder;
+    }
+
+    public JPAQuery<?> build(JPAQueryFactory queryFactory) {
+        return builder.apply(queryFactory);
+    }
+
+    // 서브쿼리용 별칭 (enum 상수보다 먼저 선언할 수 없어서 별도 클래스에 둔다.)
+    private static final class Sub {
+        private static final QMember MEMBER = new QMember("memberSub");
+    }
+}
@@ -0,0 +1,117 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.config.MemberDataSeeder;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryCountScope;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * QuerydslBasicTest 쿼리 패턴별 비용
+ *
+ * execute   : 쿼리 생성 + 직렬화 + DB 실행 + 결과 매핑 (end-to-end)
+ * serialize : 쿼리 생성 + JPQL 직렬화만 (DB 접근 없음)
+ *
+ * 패턴별로 실행된 SQL 모양을 build/query-shapes/{pattern}.sql 에 기록하고,
+ * src/jmh/resources/query-shapes/{pattern}.sql 기준 파일과 비교해서 다르거나 기준 파일이 없으면 실패한다.
+ * 의도한 변경이면 -Dquery-shapes.update=true 로 실행해서 기준 파일을 갱신하고 함께 커밋한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=QueryPatternBenchmark
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryPatternBenchmark {
+
+    private static final Path BASELINE_DIR = Paths.get("src", "jmh", "resources", "query-shapes");
+
+    @Param({"100", "10000"})
+    int members;
+
+    @Param
+    QueryPattern pattern;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate transactionTemplate;
+    JPAQueryFactory queryFactory;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start();
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        // 템플릿을 고정해서 호출마다 JPA 구현체를 판별하지 않게 한다.
+        queryFactory = new JPAQueryFactory(HQLTemplates.DEFAULT, context.getBean(EntityManager.class));
+
+        context.getBean(MemberDataSeeder.class).seed(members, 10);
+        verifySqlShape(context.getBean(NPlusOneDetector.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<?> execute() {
+        return transactionTemplate.execute(status -> pattern.build(queryFactory).fetch());
+    }
+
+    @Benchmark
+    public String serialize() {
+        return pattern.build(queryFactory).toString();
+    }
+
+    private void verifySqlShape(NPlusOneDetector detector) throws IOException {
+        StringBuilder shapes = new StringBuilder();
+        QueryCountScope scope = detector.start(Integer.MAX_VALUE, NPlusOneDetector.Mode.LOG);
+        try (scope) {
+            transactionTemplate.executeWithoutResult(status -> {
+                JPAQuery<?> query = pattern.build(queryFactory);
+                shapes.append("-- jpql\n").append(query.toString().replaceAll("\\s+", " ")).append("\n");
+                query.fetch();
+            });
+        }
+        shapes.append("-- statements : ").append(scope.getStatements()).append("\n");
+        for (String shape : scope.getSelectShapes()) {
+            shapes.append(shape).append("\n");
+        }
+
+        String fileName = pattern.name().toLowerCase() + ".sql";
+        Path out = Paths.get("build", "query-shapes", fileName);
+        Files.createDirectories(out.getParent());
+        Files.write(out, shapes.toString().getBytes(StandardCharsets.UTF_8));
+
+        if (Boolean.getBoolean("query-shapes.update")) {
+            Path baseline = BASELINE_DIR.resolve(fileName);
+            Files.createDirectories(baseline.getParent());
+            Files.write(baseline, shapes.toString().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        try (InputStream baseline = getClass().getResourceAsStream("/query-shapes/" + fileName)) {
+            if (baseline == null) {
+                throw new IllegalStateException("SQL 모양 기준 파일이 없습니다. -Dquery-shapes.update=true 로 만들어서 커밋하세요. pattern = "
+                        + pattern);
+            }
+            String expected = new String(baseline.readAllBytes(), StandardCharsets.UTF_8);
+            if (!expected.equals(shapes.toString())) {
+                throw new IllegalStateException("SQL 모양이 기준과 다릅니다. pattern = " + pattern
+                        + " (의도한 변경이면 -Dquery-shapes.update=true)"
+                        + "\nexpected:\n" + expected + "\nactual:\n" + shapes);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.config.MemberDataSeeder;
+import study.querydsl.entity.QMember;
+import study.querydsl.repository.support.SubqueryRewriter;
+import study.querydsl.repository.support.SubqueryRewriter.Rewrite;
+
+import javax.persistence.EntityManager;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/*
+ * 서브쿼리 재작성 전후 비교 (QuerydslBasicTest subQuery, subQueryGoe, subQueryIn, selectSubQuery)
+ *
+ * ./gradlew jmh -Pjmh.includes=SubqueryRewriteBenchmark
+ * 재작성된 JPQL 은 setUp 에서 한번 출력한다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubqueryRewriteBenchmark {
+
+    public enum Pattern {
+        MAX, AVG, IN, SELECT_AVG
+    }
+
+    public enum Rewrites {
+        NONE(EnumSet.noneOf(Rewrite.class)),
+        SCALAR_PRECOMPUTE(EnumSet.of(Rewrite.SCALAR_PRECOMPUTE)),
+        IN_TO_EXISTS(EnumSet.of(Rewrite.IN_TO_EXISTS)),
+        ALL(EnumSet.allOf(Rewrite.class));
+
+        final Set<Rewrite> rewrites;
+
+        Rewrites(Set<Rewrite> rewrites) {
+            this.rewrites = rewrites;
+        }
+    }
+
+    @Param({"10000"})
+    int members;
+
+    @Param
+    Pattern pattern;
+
+    @Param
+    Rewrites rewrites;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate transactionTemplate;
+    JPAQueryFactory queryFactory;
+    SubqueryRewriter rewriter;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        queryFactory = new JPAQueryFactory(HQLTemplates.DEFAULT, context.getBean(EntityManager.class));
+        rewriter = context.getBean(SubqueryRewriter.class);
+
+        context.getBean(MemberDataSeeder.class).seed(members, 10);
+        System.out.println(pattern + " / " + rewrites + " : " + rewriter.rewrite(build(), rewrites.rewrites));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // 재작성(SCALAR_PRECOMPUTE 는 서브쿼리 실행 포함) + 실행
+    @Benchmark
+    public List<?> execute() {
+        return transactionTemplate.execute(status -> rewriter.rewrite(build(), rewrites.rewrites).fetch());
+    }
+
+    private JPAQuery<?> build() {
+        QMember memberSub = new QMember("memberSub");
+        switch (pattern) {
+            case MAX:
+                return queryFactory.selectFrom(member)
+                        .where(member.age.eq(JPAExpressions.select(memberSub.age.max()).from(memberSub)));
+            case AVG:
+                return queryFactory.selectFrom(member)
+                        .where(member.age.goe(JPAExpressions.select(memberSub.age.avg()).from(memberSub)));
+            case IN:
+                return queryFactory.selectFrom(member)
+                        .where(member.age.in(JPAExpressions.select(memberSub.age).from(memberSub)
+                                .where(memberSub.age.gt(10))));
+            case SELECT_AVG:
+                return queryFactory.select(member.username,
+                                JPAExpressions.select(memberSub.age.avg()).from(memberSub))
+                        .from(member);
+            default:
+                throw new IllegalStateException(pattern.name());
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- jpql
+select count(member1), sum(member1.age), avg(member1.age), max(member1.age), min(member1.age) from Member member1
+-- statements : 1
+select count(member0_.member_id) as col_0_0_, sum(member0_.age) as col_1_0_, avg(cast(member0_.age as double)) as col_2_0_, max(member0_.age) as col_3_0_, min(member0_.age) as col_4_0_ from member member0_
@@ -0,0 +1,4 @@
+-- jpql
+select member1 from Member member1 inner join fetch member1.team as team where member1.username = ?1
+-- statements : 1
+select member0_.member_id as member_i1_1_0_, team1_.id as id1_2_1_, member0_.age as age2_1_0_, member0_.team_id as team_id4_1_0_, member0_.username as username3_1_0_, team1_.name as name2_2_1_ from member member0_ inner join team team1_ on member0_.team_id=team1_.id where member0_.username=?
@@ -0,0 +1,4 @@
+-- jpql
+select team.name, avg(member1.age) from Member member1 inner join member1.team as team group by team.name
+-- statements : 1
+select team1_.name as col_0_0_, avg(cast(member0_.age as double)) as col_1_0_ from member member0_ inner join team team1_ on member0_.team_id=team1_.id group by team1_.name
@@ -0,0 +1,4 @@
+-- jpql
+select member1 from Member member1 left join member1.team as team where team.name = ?1
+-- statements : 1
+select member0_.member_id as member_i1_1_, member0_.age as age2_1_, member0_.team_id as team_id4_1_, member0_.username as username3_1_ from member member0_ left outer join team team1_ on member0_.team_id=team1_.id where team1_.name=?
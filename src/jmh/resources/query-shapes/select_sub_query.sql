@@ -0,0 +1,4 @@
+-- jpql
+select member1.username, (select avg(memberSub.age) from Member memberSub) from Member member1
+-- statements : 1
+select member0_.username as col_0_0_, (select avg(cast(member1_.age as double)) from member member1_) as col_1_0_ from member member0_
@@ -0,0 +1,4 @@
+-- jpql
+select member1 from Member member1 where member1.age >= (select avg(memberSub.age) from Member memberSub)
+-- statements : 1
+select member0_.member_id as member_i1_1_, member0_.age as age2_1_, member0_.team_id as team_id4_1_, member0_.username as username3_1_ from member member0_ where member0_.age>=(select avg(cast(member1_.age as double)) from member member1_)
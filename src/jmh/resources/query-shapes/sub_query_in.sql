@@ -0,0 +1,4 @@
+-- jpql
+select member1 from Member member1 where member1.age in (select memberSub.age from Member memberSub where memberSub.age > ?1)
+-- statements : 1
+select member0_.member_id as member_i1_1_, member0_.age as age2_1_, member0_.team_id as team_id4_1_, member0_.username as username3_1_ from member member0_ where member0_.age in (select member1_.age from member member1_ where member1_.age>?)
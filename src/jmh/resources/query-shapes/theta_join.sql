@@ -0,0 +1,4 @@
+-- jpql
+select member1 from Member member1, Team team where member1.username = team.name
+-- statements : 1
+select member0_.member_id as member_i1_1_, member0_.age as age2_1_, member0_.team_id as team_id4_1_, member0_.username as username3_1_ from member member0_ cross join team team1_ where member0_.username=team1_.name
@@ -1,13 +1,23 @@
 package study.querydsl;
 
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.repository.support.MeteredJPAQueryFactory;
+import study.querydsl.repository.support.RewritingJPAQuery;
+import study.querydsl.repository.support.SubqueryRewriter;
 
 import javax.persistence.EntityManager;
 
 @SpringBootApplication
+@EnableScheduling
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
@@ -15,8 +25,23 @@ public class QuerydslApplication {
 	}
 
 	// 해당방법으로 스프링 Bean 등록하여 DI받아 사용할 수 있다.
+	// 메트릭이 켜져 있으면(querydsl.metrics.enabled) 실행마다 기록하는 팩토리를 쓴다.
+	// 조회 쿼리는 querydsl.subquery-rewrite 가 있으면 직렬화할때 서브쿼리를 재작성한다.
 	@Bean
-	JPAQueryFactory jpaQueryFactory(EntityManager em) {
-		return new JPAQueryFactory(em);
+	JPAQueryFactory jpaQueryFactory(EntityManager em, ObjectProvider<QueryMetrics> metrics, SubqueryRewriter rewriter) {
+		QueryMetrics queryMetrics = metrics.getIfAvailable();
+		if (queryMetrics != null) {
+			return new MeteredJPAQueryFactory(em, queryMetrics, rewriter);
+		}
+		if (rewriter.defaults().isEmpty()) {
+			return new JPAQueryFactory(em);
+		}
+		return new JPAQueryFactory(em) {
+			@Override
+			public JPAQuery<?> query() {
+				return new RewritingJPAQuery<Void>(em, JPAProvider.getTemplates(em), new DefaultQueryMetadata(),
+						rewriter, rewriter.defaults());
+			}
+		};
 	}
 }
@@ -0,0 +1,59 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 테스트 / 벤치마크용 대량 데이터 저장
+ * member{i}, 나이 i % 100, 팀당 membersPerTeam 명 (team{i / membersPerTeam})
+ * */
+@Slf4j
+@Component
+public class MemberDataSeeder {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int startupMembers;
+
+    public MemberDataSeeder(MemberJpaRepository memberJpaRepository, TransactionTemplate transactionTemplate,
+                            @Value("${querydsl.seed.members:0}") int startupMembers) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.startupMembers = startupMembers;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        if (startupMembers > 0) {
+            seed(startupMembers, 10);
+        }
+    }
+
+    public void seed(int members, int membersPerTeam) {
+        long start = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Member> list = new ArrayList<>(members);
+            Team current = null;
+            for (int i = 0; i < members; i++) {
+                if (i % membersPerTeam == 0) {
+                    current = new Team("team" + i / membersPerTeam);
+                }
+                list.add(new Member("member" + i, i % 100, current));
+            }
+            memberJpaRepository.saveAll(list, CHUNK_SIZE); // JDBC 배치 insert
+        });
+        log.info("seed members={} elapsed={}ms", members, System.currentTimeMillis() - start);
+    }
+}
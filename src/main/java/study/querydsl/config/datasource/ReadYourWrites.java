@@ -0,0 +1,26 @@
+package study.querydsl.config.datasource;
+
+/*
+ * 현재 스레드(요청)를 primary 에 고정한다.
+ * 쓰기 트랜잭션이 커넥션을 얻으면 자동으로 고정되고, 요청이 끝나면 ReadYourWritesFilter 가 해제한다.
+ * 요청 밖(배치, 테스트)에서는 clear() 를 직접 호출한다.
+ * */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+}
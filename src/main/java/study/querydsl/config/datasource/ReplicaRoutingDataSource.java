@@ -0,0 +1,191 @@
+package study.querydsl.config.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 읽기 전용 트랜잭션은 replica, 나머지(쓰기, 벌크 update/delete, 트랜잭션 밖)는 primary 로 보낸다.
+ *
+ * 트랜잭션 시작 시점에는 아직 readOnly 여부가 TransactionSynchronizationManager 에 반영되지 않으므로
+ * LazyConnectionDataSourceProxy 로 감싸서 첫 SQL 실행 시점에 실제 커넥션을 고른다.
+ *
+ * replica 는 라운드 로빈으로 고르고, 커넥션 획득이나 헬스 체크에 실패하면 ejectMillis 동안 제외한다.
+ * 사용 가능한 replica 가 없으면 primary 를 사용한다.
+ *
+ * readYourWrites = true 이면 같은 요청(스레드)에서 쓰기 트랜잭션이 있었던 뒤의 읽기는 primary 로 보낸다. (ReadYourWrites)
+ * */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final Router router;
+    private ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long ejectMillis,
+                                    boolean readYourWrites) {
+        this.router = new Router(primary, replicas, ejectMillis, readYourWrites);
+        setTargetDataSource(router);
+        afterPropertiesSet();
+    }
+
+    /*
+     * 주기적으로 replica 커넥션을 검사해서 제외 / 복귀시킨다.
+     * 헬스 체크 없이도 제외 시간이 지나면 다음 요청에서 다시 시도한다.
+     * */
+    public synchronized void startHealthCheck(long intervalMillis) {
+        if (healthChecker != null || router.replicas.isEmpty()) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : router.replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(1)) {
+                    replica.restore();
+                } else {
+                    router.eject(replica, null);
+                }
+            } catch (SQLException e) {
+                router.eject(replica, e);
+            }
+        }
+    }
+
+    public DataSource getPrimary() {
+        return router.primary;
+    }
+
+    public int getAvailableReplicas() {
+        long now = System.currentTimeMillis();
+        return (int) router.replicas.stream().filter(r -> r.isAvailable(now)).count();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        closeQuietly(router.primary);
+        router.replicas.forEach(r -> closeQuietly(r.dataSource));
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("datasource close failed", e);
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final DataSource dataSource;
+        private volatile long ejectedUntil;
+
+        private Replica(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+
+        private boolean isAvailable(long now) {
+            return ejectedUntil <= now;
+        }
+
+        private void restore() {
+            if (ejectedUntil != 0) {
+                ejectedUntil = 0;
+                log.info("replica[{}] restored", index);
+            }
+        }
+    }
+
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Router extends AbstractDataSource {
+
+        private final DataSource primary;
+        private final List<Replica> replicas;
+        private final long ejectMillis;
+        private final boolean readYourWrites;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Router(DataSource primary, List<DataSource> replicas, long ejectMillis, boolean readYourWrites) {
+            this.primary = primary;
+            this.replicas = new ArrayList<>(replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                this.replicas.add(new Replica(i, replicas.get(i)));
+            }
+            this.ejectMillis = ejectMillis;
+            this.readYourWrites = readYourWrites;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connect(DataSource::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return connect(dataSource -> dataSource.getConnection(username, password));
+        }
+
+        private Connection connect(ConnectionSource source) throws SQLException {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                if (readYourWrites && TransactionSynchronizationManager.isActualTransactionActive()) {
+                    ReadYourWrites.pin();
+                }
+                return source.get(primary);
+            }
+            if (replicas.isEmpty() || (readYourWrites && ReadYourWrites.isPinned())) {
+                return source.get(primary);
+            }
+
+            long now = System.currentTimeMillis();
+            int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.isAvailable(now)) {
+                    continue;
+                }
+                try {
+                    return source.get(replica.dataSource);
+                } catch (SQLException e) {
+                    eject(replica, e);
+                }
+            }
+            return source.get(primary); // 모든 replica 가 제외된 상태
+        }
+
+        private void eject(Replica replica, SQLException cause) {
+            boolean wasAvailable = replica.isAvailable(System.currentTimeMillis());
+            replica.ejectedUntil = System.currentTimeMillis() + ejectMillis;
+            if (wasAvailable) {
+                log.warn("replica[{}] ejected for {}ms : {}", replica.index, ejectMillis,
+                        cause == null ? "invalid connection" : cause.getMessage());
+            }
+        }
+    }
+}
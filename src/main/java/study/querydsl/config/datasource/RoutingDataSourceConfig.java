@@ -0,0 +1,48 @@
+package study.querydsl.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * querydsl.routing.enabled=true 이면 spring.datasource 대신 primary / replica 데이터소스를 사용한다.
+ * (DataSource 빈이 있으면 DataSourceAutoConfiguration 은 동작하지 않는다.)
+ * */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+public class RoutingDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(RoutingDataSourceProperties properties) {
+        List<RoutingDataSourceProperties.Node> nodes = properties.getReplicas();
+        List<DataSource> replicas = IntStream.range(0, nodes.size())
+                .mapToObj(i -> hikari(nodes.get(i), "replica-" + i))
+                .collect(Collectors.toList());
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+                hikari(properties.getPrimary(), "primary"), replicas,
+                properties.getEjectMillis(), properties.isReadYourWrites());
+        dataSource.startHealthCheck(properties.getHealthCheckMillis());
+        return dataSource;
+    }
+
+    private static DataSource hikari(RoutingDataSourceProperties.Node node, String poolName) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(node.getUrl())
+                .username(node.getUsername())
+                .password(node.getPassword())
+                .build();
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(node.getMaximumPoolSize());
+        return dataSource;
+    }
+}
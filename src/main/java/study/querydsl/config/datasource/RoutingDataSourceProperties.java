@@ -0,0 +1,30 @@
+package study.querydsl.config.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.routing")
+public class RoutingDataSourceProperties {
+
+    private boolean enabled;
+    private Node primary = new Node();
+    private List<Node> replicas = new ArrayList<>();
+    private long ejectMillis = 30_000;
+    private long healthCheckMillis = 5_000;
+    private boolean readYourWrites = true;
+
+    @Getter
+    @Setter
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
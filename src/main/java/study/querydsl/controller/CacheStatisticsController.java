@@ -0,0 +1,33 @@
+package study.querydsl.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.CacheRegionStats;
+import study.querydsl.monitor.SecondLevelCacheStatistics;
+
+import java.util.List;
+
+/*
+ * 2차 캐시 통계 GET /cache/statistics
+ * querydsl.cache-statistics.enabled 가 꺼져 있으면 수집된 값이 없으므로 404 를 돌려준다.
+ * */
+@RestController
+public class CacheStatisticsController {
+
+    private final SecondLevelCacheStatistics cacheStatistics;
+
+    public CacheStatisticsController(SecondLevelCacheStatistics cacheStatistics) {
+        this.cacheStatistics = cacheStatistics;
+    }
+
+    @GetMapping("/cache/statistics")
+    public List<CacheRegionStats> statistics() {
+        if (!cacheStatistics.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Hibernate 통계가 꺼져 있습니다. (querydsl.cache-statistics.enabled=true)");
+        }
+        return cacheStatistics.snapshot();
+    }
+}
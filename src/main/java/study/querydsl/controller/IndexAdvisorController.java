@@ -0,0 +1,36 @@
+package study.querydsl.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.monitor.IndexAdvisor;
+
+import java.util.List;
+
+@RestController
+public class IndexAdvisorController {
+
+    private final IndexAdvisor indexAdvisor;
+
+    public IndexAdvisorController(IndexAdvisor indexAdvisor) {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    // 기록 시작 / 중지 (시작할 때 이전 기록은 지운다)
+    @PostMapping("/index-advisor/recording")
+    public boolean recording(@RequestParam boolean enabled) {
+        if (enabled && !indexAdvisor.isRecording()) {
+            indexAdvisor.reset();
+        }
+        indexAdvisor.setRecording(enabled);
+        return enabled;
+    }
+
+    // 총 실행 시간이 큰 순서
+    @GetMapping("/index-advisor/recommendations")
+    public List<IndexRecommendation> recommendations() {
+        return indexAdvisor.recommend();
+    }
+}
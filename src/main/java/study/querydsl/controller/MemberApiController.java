@@ -0,0 +1,98 @@
+package study.querydsl.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.support.EntityVersions;
+import study.querydsl.service.MemberExportService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/*
+ * 회원 검색 API
+ * GET /api/members?username=&teamName=&ageGoe=&ageLoe=&cursor=&size=
+ *
+ * ETag = 서버 시작 시각 + Member / Team 변경 번호
+ * If-None-Match 가 현재 ETag 와 같으면 DB 조회와 JSON 직렬화 없이 304 를 돌려준다.
+ * (Cache-Control: no-cache -> 클라이언트는 매번 조건부 요청으로 재검증한다.)
+ * */
+@RestController
+public class MemberApiController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberExportService memberExportService;
+    private final EntityVersions entityVersions;
+    private final long startedAt = System.currentTimeMillis(); // 재시작하면 변경 번호가 0 부터 다시 시작한다.
+
+    public MemberApiController(MemberJpaRepository memberJpaRepository, MemberExportService memberExportService,
+                               EntityVersions entityVersions) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberExportService = memberExportService;
+        this.entityVersions = entityVersions;
+    }
+
+    @GetMapping("/api/members")
+    public ResponseEntity<CursorPage<MemberTeamDto>> members(MemberSearchCondition condition,
+                                                             @RequestParam(required = false) Long cursor,
+                                                             @RequestParam(defaultValue = "20") int size,
+                                                             WebRequest request) {
+        String etag = etag();
+        if (request.checkNotModified(etag)) {
+            return null; // 304
+        }
+        CursorPage<MemberTeamDto> page = memberJpaRepository.searchPage(condition, cursor,
+                Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(page);
+    }
+
+    /*
+    * 내보내기 GET /api/members/export?format=json|csv (검색 조건은 /api/members 와 같다.)
+    * 응답은 별도 스레드(MVC async)에서 커서를 읽으면서 바로 쓴다.
+    * 모르는 format 은 400
+    * */
+    @GetMapping("/api/members/export")
+    public ResponseEntity<StreamingResponseBody> export(MemberSearchCondition condition,
+                                                        @RequestParam(defaultValue = "json") String format) {
+        MemberExportService.Format exportFormat = exportFormat(format);
+        StreamingResponseBody body = out -> memberExportService.export(condition, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == MemberExportService.Format.JSON
+                        ? MediaType.APPLICATION_JSON
+                        : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=members." + exportFormat.name().toLowerCase())
+                .body(body);
+    }
+
+    private static MemberExportService.Format exportFormat(String format) {
+        try {
+            return MemberExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "지원하지 않는 format 입니다. (json, csv) : " + format);
+        }
+    }
+
+    private String etag() {
+        return "\"" + startedAt + "-" + entityVersions.get(Member.class) + "-" + entityVersions.get(Team.class) + "\"";
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.monitor.LatencyHistogram;
+import study.querydsl.monitor.SampledSqlLogger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@ConditionalOnProperty(prefix = "querydsl.sql-log", name = "mode", havingValue = "sampled")
+public class SqlLatencyController {
+
+    private final SampledSqlLogger sqlLogger;
+
+    public SqlLatencyController(SampledSqlLogger sqlLogger) {
+        this.sqlLogger = sqlLogger;
+    }
+
+    // SQL 모양별 지연시간 분포 (us)
+    @GetMapping("/sql/latency")
+    public Map<String, Map<String, Long>> latency() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        sqlLogger.getHistograms().forEach((shape, histogram) -> result.put(shape, summary(histogram)));
+        return result;
+    }
+
+    private Map<String, Long> summary(LatencyHistogram histogram) {
+        Map<String, Long> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getCount());
+        summary.put("mean", histogram.getMeanMicros());
+        summary.put("p50", histogram.percentileMicros(50));
+        summary.put("p99", histogram.percentileMicros(99));
+        summary.put("max", histogram.getMaxMicros());
+        return summary;
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * 벌크 연산 결과 (전체 / chunk 별 영향받은 row 수와 수행 시간)
+ * */
+@Getter
+@ToString
+public class BulkResult {
+
+    private long affected;
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    public void add(long fromId, long toId, long affected, long elapsedNanos) {
+        this.affected += affected;
+        this.chunks.add(new Chunk(fromId, toId, affected, elapsedNanos));
+    }
+
+    public List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    @Getter
+    @ToString
+    public static class Chunk {
+        private final long fromId;
+        private final long toId;
+        private final long affected;
+        private final long elapsedNanos;
+
+        public Chunk(long fromId, long toId, long affected, long elapsedNanos) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.affected = affected;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/*
+ * 2차 캐시 / 쿼리 캐시 영역별 통계
+ * */
+@Getter
+@ToString
+public class CacheRegionStats {
+
+    private final String region;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    private final long evictionCount; // JCache 통계 (확인할 수 없으면 -1)
+    private final long elementCountInMemory;
+
+    public CacheRegionStats(String region, long hitCount, long missCount, long putCount,
+                            long evictionCount, long elementCountInMemory) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.evictionCount = evictionCount;
+        this.elementCountInMemory = elementCountInMemory;
+    }
+
+    public double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/*
+ * Keyset 페이징 결과
+ * nextCursor가 null이면 마지막 페이지
+ * */
+@Getter
+@ToString
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
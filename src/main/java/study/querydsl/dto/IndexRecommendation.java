@@ -0,0 +1,35 @@
+package study.querydsl.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/*
+ * 인덱스 추천 (IndexAdvisor)
+ * columns 는 equality -> sort -> range 순서 (ESR)
+ * sql, plan 에는 바인딩 값이 들어가지 않는다. (리터럴은 ? 로 바꾼다)
+ * */
+@Value
+public class IndexRecommendation {
+
+    String table;
+    String entity;
+    List<String> columns;
+    long executions;
+    long totalMillis;
+    String sql; // SQL 모양 (SqlShape)
+    String plan;
+
+    public String getName() {
+        return "idx_" + table + "_" + String.join("_", columns);
+    }
+
+    public String getDdl() {
+        return "create index " + getName() + " on " + table + " (" + String.join(", ", columns) + ")";
+    }
+
+    // @Table(indexes = ...) 에 붙여넣을 조각
+    public String getAnnotation() {
+        return "@Index(name = \"" + getName() + "\", columnList = \"" + String.join(", ", columns) + "\")";
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+import study.querydsl.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+ * Keyset(seek) 페이징 커서
+ * 정렬 키(age desc, username asc nulls last) + member_id 타이브레이커를 담는다.
+ * 클라이언트에는 Base64 문자열로만 노출한다. (opaque cursor)
+ * */
+@Getter
+@ToString
+public class MemberCursor {
+
+    private static final String DELIMITER = ":";
+    private static final String NULL_MARK = "-";
+
+    private final int age;
+    private final String username;
+    private final Long id;
+
+    public MemberCursor(int age, String username, Long id) {
+        this.age = age;
+        this.username = username;
+        this.id = id;
+    }
+
+    public static MemberCursor of(Member member) {
+        return new MemberCursor(member.getAge(), member.getUsername(), member.getId());
+    }
+
+    public String encode() {
+        // username은 구분자를 포함할 수 있으므로 한번 더 인코딩한다.
+        String name = username == null ? NULL_MARK : encodeText(username);
+        String raw = age + DELIMITER + name + DELIMITER + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(DELIMITER, -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("잘못된 커서입니다. cursor = " + cursor);
+            }
+            String name = NULL_MARK.equals(parts[1]) ? null : decodeText(parts[1]);
+            return new MemberCursor(Integer.parseInt(parts[0]), name, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) { // NumberFormatException 포함
+            throw new IllegalArgumentException("잘못된 커서입니다. cursor = " + cursor, e);
+        }
+    }
+
+    private static String encodeText(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeText(String text) {
+        return new String(Base64.getUrlDecoder().decode(text), StandardCharsets.UTF_8);
+    }
+}
@@ -2,6 +2,7 @@ package study.querydsl.dto;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import study.querydsl.projection.DirectProjection;
 
 @Data
 @NoArgsConstructor
@@ -10,6 +11,7 @@ public class MemberDto {
     private String username;
     private int age;
 
+    @DirectProjection // MemberDtoProjection 생성
     public MemberDto(String username, int age) {
         this.username = username;
         this.age = age;
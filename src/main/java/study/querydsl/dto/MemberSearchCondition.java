@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/*
+ * 회원 검색 조건 (모두 선택)
+ * 회원명, 팀명, 나이(ageGoe <= age <= ageLoe)
+ * */
+@Data
+public class MemberSearchCondition {
+
+    private String username;
+    private String teamName;
+    private Integer ageGoe;
+    private Integer ageLoe;
+}
@@ -0,0 +1,28 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/*
+ * 팀별 회원 나이 집계
+ * */
+@Getter
+@ToString
+public class TeamAgeStats {
+
+    private final String teamName;
+    private final long count;
+    private final long sum;
+    private final double avg;
+    private final int max;
+    private final int min;
+
+    public TeamAgeStats(String teamName, long count, long sum, double avg, int max, int min) {
+        this.teamName = teamName;
+        this.count = count;
+        this.sum = sum;
+        this.avg = avg;
+        this.max = max;
+        this.min = min;
+    }
+}
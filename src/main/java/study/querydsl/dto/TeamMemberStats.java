@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import lombok.Value;
+
+/*
+ * 팀별 회원 통계 (TeamStatistics)
+ * */
+@Value
+public class TeamMemberStats {
+
+    Long teamId;
+    long count;
+    long sum;
+    int minAge;
+    int maxAge;
+
+    public double getAvg() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -1,8 +1,10 @@
 package study.querydsl.dto;
 
 import lombok.Data;
+import study.querydsl.projection.DirectProjection;
 
 @Data
+@DirectProjection // UserDtoProjection 생성 (기본 생성자 + setter)
 //@NoArgsConstructor
 public class UserDto {
 
@@ -6,12 +6,16 @@ import lombok.*;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_member_username", columnList = "username")) // findByUsername* (IndexAdvisor 추천)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"}) // team은 넣을경우 무한루프돔
 public class Member {
 
-    @Id @GeneratedValue
+    // pooled 옵티마이저 : 시퀀스 한번 호출로 50개 id 확보 -> insert 배치 가능
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
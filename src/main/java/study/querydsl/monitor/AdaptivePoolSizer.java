@@ -0,0 +1,101 @@
+package study.querydsl.monitor;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/*
+ * 커넥션 풀 크기 자동 조정 (querydsl.pool.adaptive.enabled=true)
+ *
+ * interval 마다 PoolMonitor 구간 통계로 판단한다.
+ * - 획득 대기(mean wait)가 target-wait 를 넘으면 풀이 병목 -> 크기를 늘린다. (현재 크기의 1/4, 최소 1)
+ * - 늘린 다음 구간의 처리량(반납된 커넥션 / 초)이 5% 이상 늘지 않았으면 DB 가 병목
+ *   -> 이전 크기로 되돌리고, 그 크기를 상한으로 삼는다. (커넥션을 더 줘도 DB 안에서 경합만 늘어남)
+ * - 대기가 없고 실제 사용 중인 커넥션(처리량 x 평균 점유 시간, Little's law)이 절반도 안되면 1 씩 줄이고 상한을 푼다.
+ * 크기는 항상 min-size ~ max-size 안에서만 바꾼다.
+ *
+ * Hikari 는 maximumPoolSize 를 줄여도 사용 중인 커넥션을 끊지 않고, 반납되는 커넥션부터 정리한다.
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.pool.adaptive", name = "enabled", havingValue = "true")
+public class AdaptivePoolSizer {
+
+    private static final double MIN_THROUGHPUT_GAIN = 1.05;
+    private static final double SHRINK_UTILIZATION = 0.5;
+
+    private final PoolMonitor poolMonitor;
+    private final int minSize;
+    private final int maxSize;
+    private final double targetWaitMillis;
+    private final long intervalMillis;
+
+    private int ceiling;
+    private int previousSize;
+    private double previousThroughput;
+    private boolean grew;
+
+    public AdaptivePoolSizer(PoolMonitor poolMonitor,
+                             @Value("${querydsl.pool.adaptive.min-size:2}") int minSize,
+                             @Value("${querydsl.pool.adaptive.max-size:20}") int maxSize,
+                             @Value("${querydsl.pool.adaptive.target-wait-millis:5}") double targetWaitMillis,
+                             @Value("${querydsl.pool.adaptive.interval-millis:10000}") long intervalMillis) {
+        if (minSize <= 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("invalid pool bounds : " + minSize + " ~ " + maxSize);
+        }
+        this.poolMonitor = poolMonitor;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetWaitMillis = targetWaitMillis;
+        this.intervalMillis = intervalMillis;
+        this.ceiling = maxSize;
+    }
+
+    @Scheduled(initialDelayString = "${querydsl.pool.adaptive.interval-millis:10000}",
+            fixedDelayString = "${querydsl.pool.adaptive.interval-millis:10000}")
+    public void adjust() {
+        HikariDataSource hikari = poolMonitor.hikari();
+        if (hikari == null) {
+            return;
+        }
+        HikariConfigMXBean config = hikari.getHikariConfigMXBean();
+        int current = config.getMaximumPoolSize();
+        PoolMonitor.WindowStats stats = poolMonitor.drainWindow();
+        int next = nextSize(current, stats, intervalMillis / 1000.0);
+        if (next != current) {
+            log.info("pool size {} -> {} (wait={}ms, hold={}ms, throughput={}/s)", current, next,
+                    String.format("%.2f", stats.meanWaitMillis()), String.format("%.2f", stats.meanHoldMillis()),
+                    String.format("%.1f", stats.getReleases() / (intervalMillis / 1000.0)));
+            if (config.getMinimumIdle() > next) {
+                config.setMinimumIdle(next);
+            }
+            config.setMaximumPoolSize(next);
+        }
+    }
+
+    synchronized int nextSize(int current, PoolMonitor.WindowStats stats, double seconds) {
+        double throughput = seconds <= 0 ? 0 : stats.getReleases() / seconds;
+        int next = current;
+
+        if (grew && throughput < previousThroughput * MIN_THROUGHPUT_GAIN) {
+            // 늘렸는데 처리량이 그대로 -> DB 포화
+            ceiling = previousSize;
+            next = previousSize;
+        } else if (stats.meanWaitMillis() > targetWaitMillis) {
+            next = Math.min(current + Math.max(1, current / 4), Math.min(ceiling, maxSize));
+        } else if (throughput * stats.meanHoldMillis() / 1000.0 < current * SHRINK_UTILIZATION) {
+            next = current - 1;
+            ceiling = maxSize;
+        }
+        next = Math.max(minSize, Math.min(maxSize, next));
+
+        grew = next > current;
+        previousSize = current;
+        previousThroughput = throughput;
+        return next;
+    }
+}
@@ -0,0 +1,278 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.monitor.SqlPredicateParser.ColumnUse;
+import study.querydsl.monitor.SqlPredicateParser.Usage;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/*
+ * 인덱스 추천 (querydsl.index-advisor.enabled, 또는 setRecording(true))
+ *
+ * 1. 기록 : 실행된 select 를 SQL 모양별로 모은다. (실행 횟수, 시간, 값이 들어간 SQL 1건)
+ *    조건 / 정렬 컬럼 해석은 모양별로 처음 한번만 한다.
+ *    값이 들어간 SQL 은 EXPLAIN 에만 쓰고 밖으로 내보내지 않는다. (추천에는 SQL 모양과 리터럴을 지운 실행 계획)
+ * 2. 추천 : 모양별로 H2 EXPLAIN 을 실행해서 tableScan 인 테이블만 대상으로 삼는다.
+ *    컬럼 순서는 equality -> sort -> range (ESR), 범위 조건은 첫번째 하나만 넣는다.
+ *    이미 있는 인덱스(DatabaseMetaData)의 앞부분과 같은 추천은 버린다. (H2 가 일부러 쓰지 않은 인덱스)
+ *
+ * Querydsl 메타데이터 대신 p6spy 로 실제 SQL 을 보므로 join / 서브쿼리 / 네이티브 쿼리 모두 같은 방식으로 다룬다.
+ * */
+@Slf4j
+@Component
+public class IndexAdvisor extends SimpleJdbcEventListener {
+
+    private static final int MAX_SHAPES = 1_000;
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\*\\s*\\w+\\.(\\w+)\\.tableScan", Pattern.CASE_INSENSITIVE);
+
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<EntityManagerFactory> emf;
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    // DataSource 데코레이터가 리스너(이 빈)를 먼저 찾으므로 DataSource 는 나중에 꺼낸다.
+    public IndexAdvisor(ObjectProvider<DataSource> dataSource,
+                        ObjectProvider<EntityManagerFactory> emf,
+                        @Value("${querydsl.index-advisor.enabled:false}") boolean recording) {
+        this.dataSource = dataSource;
+        this.emf = emf;
+        this.recording = recording;
+    }
+
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (recording && e == null) {
+            record(statementInformation.getSql(), sqlWithValues(statementInformation), timeElapsedNanos);
+        }
+    }
+
+    /*
+     * EXPLAIN 에 쓸 값이 들어간 SQL
+     * p6spy 는 SQL 주석 안의 ? (use_sql_comments 로 붙는 JPQL 의 ?1) 에도 값을 채워서 실제 파라미터 뒤쪽이 NULL 이 된다.
+     * 주석을 지운 SQL 로 잠깐 바꿔서 값을 채우고 되돌린다. (같은 스레드의 리스너 호출 안에서만 바뀐다)
+     * */
+    static String sqlWithValues(StatementInformation statementInformation) {
+        String sql = statementInformation.getStatementQuery();
+        if (sql == null || sql.indexOf("/*") < 0) {
+            return statementInformation.getSqlWithValues();
+        }
+        statementInformation.setStatementQuery(SqlShape.stripComments(sql));
+        try {
+            return statementInformation.getSqlWithValues();
+        } finally {
+            statementInformation.setStatementQuery(sql);
+        }
+    }
+
+    void record(String sql, String sqlWithValues, long nanos) {
+        String shape = SqlShape.normalize(sql);
+        if (!SqlShape.isSelect(shape)) {
+            return;
+        }
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null && shapes.size() < MAX_SHAPES) {
+            stats = shapes.computeIfAbsent(shape, key -> new ShapeStats(SqlPredicateParser.parse(key)));
+        }
+        if (stats != null) {
+            stats.count.increment();
+            stats.nanos.add(nanos);
+            stats.sampleSql = sqlWithValues;
+        }
+    }
+
+    public List<IndexRecommendation> recommend() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource.getObject());
+        Map<String, String> entities = entityNames();
+        Map<String, List<List<String>>> existing = new HashMap<>();
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+
+        shapes.forEach((shape, stats) -> {
+            String plan = explain(jdbcTemplate, stats.sampleSql);
+            if (plan == null) {
+                return;
+            }
+            for (String table : scannedTables(plan)) {
+                List<String> columns = indexColumns(table, stats.uses);
+                if (columns.isEmpty()) {
+                    continue;
+                }
+                List<List<String>> indexes = existing.computeIfAbsent(table, key -> existingIndexes(jdbcTemplate, key));
+                if (indexes.stream().anyMatch(index -> startsWith(index, columns))) {
+                    continue;
+                }
+                candidates.computeIfAbsent(table + columns, key -> new Candidate(table, columns, shape, plan))
+                        .add(stats.count.sum(), stats.nanos.sum());
+            }
+        });
+
+        return candidates.values().stream()
+                .sorted(Comparator.comparingLong((Candidate c) -> c.nanos).reversed())
+                .map(c -> new IndexRecommendation(c.table, entities.get(c.table), c.columns, c.executions,
+                        TimeUnit.NANOSECONDS.toMillis(c.nanos), c.sql, SqlShape.stripLiterals(c.plan)))
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * 한 테이블의 인덱스 컬럼 (ESR)
+     * 정렬 컬럼은 order by 전체가 이 테이블 컬럼일 때만 넣는다. (다른 테이블 컬럼이 섞이면 인덱스로 정렬을 대신할 수 없음)
+     * 조건 없이 join 으로만 읽히는 테이블은 join 컬럼
+     * */
+    static List<String> indexColumns(String table, List<ColumnUse> uses) {
+        Set<String> columns = new LinkedHashSet<>();
+        add(columns, table, uses, Usage.EQUALITY);
+        boolean sortOnThisTable = uses.stream()
+                .filter(use -> use.usage == Usage.SORT)
+                .allMatch(use -> use.table.equals(table));
+        if (sortOnThisTable) {
+            add(columns, table, uses, Usage.SORT);
+        }
+        uses.stream()
+                .filter(use -> use.usage == Usage.RANGE && use.table.equals(table))
+                .findFirst()
+                .ifPresent(use -> columns.add(use.column));
+        if (columns.isEmpty()) {
+            add(columns, table, uses, Usage.JOIN);
+        }
+        return new ArrayList<>(columns);
+    }
+
+    private static void add(Set<String> columns, String table, List<ColumnUse> uses, Usage usage) {
+        for (ColumnUse use : uses) {
+            if (use.usage == usage && use.table.equals(table)) {
+                columns.add(use.column);
+            }
+        }
+    }
+
+    private static boolean startsWith(List<String> index, List<String> columns) {
+        return index.size() >= columns.size() && index.subList(0, columns.size()).equals(columns);
+    }
+
+    private String explain(JdbcTemplate jdbcTemplate, String sql) {
+        try {
+            return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class));
+        } catch (DataAccessException e) {
+            log.debug("explain 실패 : {}", sql, e);
+            return null;
+        }
+    }
+
+    static Set<String> scannedTables(String plan) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        return tables;
+    }
+
+    // 인덱스 이름 -> 컬럼 목록 (ORDINAL_POSITION 순)
+    private List<List<String>> existingIndexes(JdbcTemplate jdbcTemplate, String table) {
+        List<List<String>> indexes = jdbcTemplate.execute((ConnectionCallback<List<List<String>>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+            Map<String, TreeMap<Short, String>> columns = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(null, null, name, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        columns.computeIfAbsent(index, key -> new TreeMap<>())
+                                .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            List<List<String>> result = new ArrayList<>();
+            columns.values().forEach(c -> result.add(new ArrayList<>(c.values())));
+            return result;
+        });
+        return indexes == null ? List.of() : indexes;
+    }
+
+    private Map<String, String> entityNames() {
+        Map<String, String> names = new HashMap<>();
+        emf.getObject().unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersisters()
+                .forEach((entityName, persister) -> {
+                    if (persister instanceof AbstractEntityPersister) {
+                        String table = ((AbstractEntityPersister) persister).getTableName().toLowerCase(Locale.ROOT);
+                        names.put(table, entityName.substring(entityName.lastIndexOf('.') + 1));
+                    }
+                });
+        return names;
+    }
+
+    private static final class ShapeStats {
+        private final List<ColumnUse> uses;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private volatile String sampleSql;
+
+        private ShapeStats(List<ColumnUse> uses) {
+            this.uses = uses;
+        }
+    }
+
+    private static final class Candidate {
+        private final String table;
+        private final List<String> columns;
+        private final String sql;
+        private final String plan;
+        private long executions;
+        private long nanos;
+
+        private Candidate(String table, List<String> columns, String sql, String plan) {
+            this.table = table;
+            this.columns = columns;
+            this.sql = sql;
+            this.plan = plan;
+        }
+
+        private void add(long executions, long nanos) {
+            this.executions += executions;
+            this.nanos += nanos;
+        }
+    }
+}
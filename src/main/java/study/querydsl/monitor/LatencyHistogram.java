@@ -0,0 +1,58 @@
+package study.querydsl.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * 지연시간 히스토그램 (마이크로초, 2의 거듭제곱 구간)
+ * 구간 i : [2^(i-1), 2^i) us, 0번 구간은 1us 미만
+ * 원본 로그 대신 분포만 유지하므로 메모리가 일정하다.
+ * */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanMicros() {
+        long c = count.get();
+        return c == 0 ? 0 : totalMicros.get() / c;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    // 분위수가 속한 구간의 상한값 (근사치)
+    public long percentileMicros(double percentile) {
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(c * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i == 0 ? 1 : 1L << i;
+            }
+        }
+        return maxMicros.get();
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.monitor;
+
+import java.util.Map;
+
+public class NPlusOneDetectedException extends RuntimeException {
+
+    private final Map<String, Integer> repeatedSelects;
+
+    public NPlusOneDetectedException(Map<String, Integer> repeatedSelects) {
+        super("N+1 의심 쿼리가 감지되었습니다. " + repeatedSelects);
+        this.repeatedSelects = repeatedSelects;
+    }
+
+    public Map<String, Integer> getRepeatedSelects() {
+        return repeatedSelects;
+    }
+}
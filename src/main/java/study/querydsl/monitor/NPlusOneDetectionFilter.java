@@ -0,0 +1,33 @@
+package study.querydsl.monitor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/*
+ * HTTP 요청 단위로 N+1 을 감지한다.
+ * */
+@Component
+@ConditionalOnProperty(prefix = "querydsl.n-plus-one", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class NPlusOneDetectionFilter extends OncePerRequestFilter {
+
+    private final NPlusOneDetector detector;
+
+    public NPlusOneDetectionFilter(NPlusOneDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (QueryCountScope scope = detector.start()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
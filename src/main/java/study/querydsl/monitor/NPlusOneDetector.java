@@ -0,0 +1,83 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/*
+ * N+1 감지기 (p6spy 리스너)
+ *
+ * 현재 스레드에 열린 QueryCountScope 에 실행된 SQL 을 모양(shape)별로 센다.
+ * 같은 모양의 select 가 threshold 를 넘게 반복되면
+ * ex) 지연 로딩된 member.team 을 회원마다 조회 -> select ... from team team0_ where team0_.id=? 반복
+ * 모드에 따라 로그를 남기거나(LOG) 예외를 던진다(FAIL).
+ *
+ * try (QueryCountScope scope = detector.start()) {
+ *     ...
+ * }
+ * */
+@Slf4j
+@Component
+public class NPlusOneDetector extends SimpleJdbcEventListener {
+
+    public enum Mode {
+        LOG, FAIL
+    }
+
+    private final ThreadLocal<QueryCountScope> current = new ThreadLocal<>();
+    private final int defaultThreshold;
+    private final Mode defaultMode;
+
+    public NPlusOneDetector(@Value("${querydsl.n-plus-one.threshold:5}") int defaultThreshold,
+                            @Value("${querydsl.n-plus-one.mode:LOG}") Mode defaultMode) {
+        this.defaultThreshold = defaultThreshold;
+        this.defaultMode = defaultMode;
+    }
+
+    public QueryCountScope start() {
+        return start(defaultThreshold, defaultMode);
+    }
+
+    public QueryCountScope start(int threshold, Mode mode) {
+        QueryCountScope scope = new QueryCountScope(this, current.get(), threshold, mode);
+        current.set(scope);
+        return scope;
+    }
+
+    public QueryCountScope currentScope() {
+        return current.get();
+    }
+
+    void end(QueryCountScope scope) {
+        if (current.get() == scope) {
+            if (scope.getParent() == null) {
+                current.remove();
+            } else {
+                current.set(scope.getParent());
+            }
+        }
+
+        Map<String, Integer> repeated = scope.getRepeatedSelects();
+        if (repeated.isEmpty()) {
+            return;
+        }
+        if (scope.getMode() == Mode.FAIL) {
+            throw new NPlusOneDetectedException(repeated);
+        }
+        repeated.forEach((shape, count) ->
+                log.warn("N+1 의심 : 같은 모양의 select {}회 실행 (threshold={}) : {}", count, scope.getThreshold(), shape));
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        QueryCountScope scope = current.get();
+        if (scope != null) {
+            scope.record(SqlShape.normalize(statementInformation.getSql()));
+        }
+    }
+}
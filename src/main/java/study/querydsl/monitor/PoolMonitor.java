@@ -0,0 +1,194 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/*
+ * 커넥션 풀 사용 기록 (p6spy 리스너)
+ *
+ * querydsl.pool.acquire      : 커넥션 획득 대기 시간 (getConnection)
+ * querydsl.pool.hold         : 획득 ~ 반납(close) 까지 잡고 있던 시간
+ * querydsl.pool.connections  : Hikari 풀의 active / idle / pending / total (state 태그)
+ *
+ * 태그 method 는 커넥션으로 처음 SQL 을 실행한 리포지토리 메서드다.
+ * (트랜잭션 시작 시점에 커넥션을 받으면 아직 리포지토리 메서드 밖이므로 획득 시점 이름은 쓰지 않는다)
+ * querydsl.metrics.enabled=false 면 RepositoryMethodAspect 가 없으므로 method 는 unknown 이다.
+ * AdaptivePoolSizer 를 위해 구간 합계(window)도 따로 모은다.
+ * */
+@Slf4j
+@Component
+public class PoolMonitor extends SimpleJdbcEventListener implements SmartInitializingSingleton {
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final ObjectProvider<DataSource> dataSource;
+    private final Map<ConnectionInformation, Holding> holdings = new ConcurrentHashMap<>();
+    private final Map<String, Timer> acquireTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> holdTimers = new ConcurrentHashMap<>();
+    private final Window window = new Window();
+    private volatile MeterRegistry registry;
+    private volatile HikariDataSource hikari;
+    private volatile boolean resolved;
+
+    /*
+     * DataSource 데코레이터가 리스너(이 빈)를 먼저 찾으므로 DataSource, MeterRegistry 는 나중에 꺼낸다.
+     * MeterRegistry 를 여기서 만들면 DataSource 메트릭 바인더가 데코레이트 전의 DataSource 를 확정해버린다.
+     * (p6spy 리스너가 전부 동작하지 않음)
+     * */
+    public PoolMonitor(ObjectProvider<MeterRegistry> registryProvider, ObjectProvider<DataSource> dataSource) {
+        this.registryProvider = registryProvider;
+        this.dataSource = dataSource;
+    }
+
+    // 그 전의 커넥션 사용(스키마 생성 등)은 기록하지 않는다.
+    @Override
+    public void afterSingletonsInstantiated() {
+        registry = registryProvider.getObject();
+        gauge("active", HikariPoolMXBean::getActiveConnections);
+        gauge("idle", HikariPoolMXBean::getIdleConnections);
+        gauge("pending", HikariPoolMXBean::getThreadsAwaitingConnection);
+        gauge("total", HikariPoolMXBean::getTotalConnections);
+    }
+
+    private void gauge(String state, ToIntFunction<HikariPoolMXBean> value) {
+        Gauge.builder("querydsl.pool.connections", this, monitor -> {
+                    HikariPoolMXBean pool = monitor.pool();
+                    return pool == null ? Double.NaN : value.applyAsInt(pool);
+                })
+                .tag("state", state)
+                .register(registry);
+    }
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        if (e != null) {
+            return;
+        }
+        long waitNanos = connectionInformation.getTimeToGetConnectionNs();
+        window.acquires.increment();
+        window.waitNanos.add(waitNanos);
+        holdings.put(connectionInformation, new Holding(System.nanoTime(), waitNanos, RepositoryMethodContext.current()));
+    }
+
+    @Override
+    public void onBeforeAnyExecute(StatementInformation statementInformation) {
+        Holding holding = holdings.get(statementInformation.getConnectionInformation());
+        if (holding != null && RepositoryMethodContext.UNKNOWN.equals(holding.method)) {
+            holding.method = RepositoryMethodContext.current();
+        }
+    }
+
+    // 획득 대기도 반납 시점에 기록해서 점유 시간과 같은 method 태그를 붙인다.
+    @Override
+    public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+        Holding holding = holdings.remove(connectionInformation);
+        if (holding == null) {
+            return;
+        }
+        long holdNanos = System.nanoTime() - holding.start;
+        window.releases.increment();
+        window.holdNanos.add(holdNanos);
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            timer(registry, acquireTimers, "querydsl.pool.acquire", holding.method)
+                    .record(holding.waitNanos, TimeUnit.NANOSECONDS);
+            timer(registry, holdTimers, "querydsl.pool.hold", holding.method)
+                    .record(holdNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry registry, Map<String, Timer> timers, String name, String method) {
+        return timers.computeIfAbsent(method, key -> Timer.builder(name).tag("method", key).register(registry));
+    }
+
+    /*
+     * 마지막 호출 이후 구간 통계 (호출하면 초기화)
+     * AdaptivePoolSizer 한 곳에서만 호출한다.
+     * */
+    public WindowStats drainWindow() {
+        return new WindowStats(window.acquires.sumThenReset(), window.waitNanos.sumThenReset(),
+                window.releases.sumThenReset(), window.holdNanos.sumThenReset());
+    }
+
+    // 풀 크기 조정용 (Hikari 가 아니거나 여러 풀로 라우팅하면 null)
+    public HikariDataSource hikari() {
+        if (!resolved) {
+            DataSource target = dataSource.getIfAvailable();
+            try {
+                hikari = target != null && target.isWrapperFor(HikariDataSource.class)
+                        ? target.unwrap(HikariDataSource.class) : null;
+            } catch (SQLException e) {
+                log.debug("HikariDataSource unwrap 실패", e);
+            }
+            resolved = true;
+        }
+        return hikari;
+    }
+
+    private HikariPoolMXBean pool() {
+        HikariDataSource hikari = hikari();
+        return hikari == null ? null : hikari.getHikariPoolMXBean();
+    }
+
+    private static final class Holding {
+        private final long start;
+        private final long waitNanos;
+        private volatile String method;
+
+        private Holding(long start, long waitNanos, String method) {
+            this.start = start;
+            this.waitNanos = waitNanos;
+            this.method = method;
+        }
+    }
+
+    private static final class Window {
+        private final LongAdder acquires = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder releases = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+    }
+
+    public static final class WindowStats {
+        private final long acquires;
+        private final long waitNanos;
+        private final long releases;
+        private final long holdNanos;
+
+        public WindowStats(long acquires, long waitNanos, long releases, long holdNanos) {
+            this.acquires = acquires;
+            this.waitNanos = waitNanos;
+            this.releases = releases;
+            this.holdNanos = holdNanos;
+        }
+
+        public double meanWaitMillis() {
+            return acquires == 0 ? 0 : waitNanos / 1_000_000.0 / acquires;
+        }
+
+        public double meanHoldMillis() {
+            return releases == 0 ? 0 : holdNanos / 1_000_000.0 / releases;
+        }
+
+        public long getReleases() {
+            return releases;
+        }
+    }
+}
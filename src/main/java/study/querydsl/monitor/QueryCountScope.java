@@ -0,0 +1,84 @@
+package study.querydsl.monitor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * 한 구간(요청, 트랜잭션, 테스트)에서 실행된 SQL 통계
+ * try-with-resources 로 사용하고, 닫힐 때 N+1 여부를 검사한다.
+ * */
+public class QueryCountScope implements AutoCloseable {
+
+    private final NPlusOneDetector detector;
+    private final QueryCountScope parent;
+    private final int threshold;
+    private final NPlusOneDetector.Mode mode;
+
+    private int statements;
+    private final Map<String, Integer> selects = new LinkedHashMap<>();
+    private boolean closed;
+
+    QueryCountScope(NPlusOneDetector detector, QueryCountScope parent, int threshold, NPlusOneDetector.Mode mode) {
+        this.detector = detector;
+        this.parent = parent;
+        this.threshold = threshold;
+        this.mode = mode;
+    }
+
+    void record(String shape) {
+        statements++;
+        if (SqlShape.isSelect(shape)) {
+            selects.merge(shape, 1, Integer::sum);
+        }
+        if (parent != null) {
+            parent.record(shape);
+        }
+    }
+
+    QueryCountScope getParent() {
+        return parent;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getSelectCount(String shape) {
+        return selects.getOrDefault(shape, 0);
+    }
+
+    // 실행된 select 모양 (실행 순서)
+    public Set<String> getSelectShapes() {
+        return Collections.unmodifiableSet(selects.keySet());
+    }
+
+    // threshold 를 넘게 반복된 같은 모양의 select -> N+1 의심
+    public Map<String, Integer> getRepeatedSelects() {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        selects.forEach((shape, count) -> {
+            if (count > threshold) {
+                repeated.put(shape, count);
+            }
+        });
+        return Collections.unmodifiableMap(repeated);
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public NPlusOneDetector.Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        detector.end(this);
+    }
+}
@@ -0,0 +1,105 @@
+package study.querydsl.monitor;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/*
+ * Querydsl 실행 메트릭 (Micrometer)
+ *
+ * querydsl.query                           : 실행 시간
+ * querydsl.query.rows                      : 결과 row 수
+ * querydsl.query.statements                : 실행된 SQL 수 (지연 로딩, count 쿼리 포함)
+ * querydsl.query.persistence-context.size  : 완료 시점 영속성 컨텍스트의 엔티티 수
+ *
+ * 태그 : method(호출한 리포지토리 메서드), operation(fetch, fetchOne ...), shape(루트 엔티티 / join 수)
+ * Meter 는 태그 조합별로 한번만 만들어서 재사용한다.
+ * */
+@Component
+@ConditionalOnProperty(prefix = "querydsl.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryMetrics {
+
+    private final MeterRegistry registry;
+    private final StatementCounter statementCounter;
+    private final EntityManager em;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry, StatementCounter statementCounter, EntityManager em) {
+        this.registry = registry;
+        this.statementCounter = statementCounter;
+        this.em = em;
+    }
+
+    public <R> R record(String operation, QueryMetadata metadata, Supplier<R> call, ToLongFunction<R> rows) {
+        return record(operation, shape(metadata), call, rows);
+    }
+
+    public <R> R record(String operation, String shape, Supplier<R> call, ToLongFunction<R> rows) {
+        Meters m = meters(RepositoryMethodContext.current(), operation, shape);
+        long statementsBefore = statementCounter.current();
+        long start = System.nanoTime();
+        R result = null;
+        try {
+            result = call.get();
+            return result;
+        } finally {
+            m.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            m.statements.record(statementCounter.current() - statementsBefore);
+            if (result != null) {
+                m.rows.record(rows.applyAsLong(result));
+            }
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                m.persistenceContext.record(em.unwrap(SessionImplementor.class)
+                        .getPersistenceContext().getNumberOfManagedEntities());
+            }
+        }
+    }
+
+    // 루트 엔티티 + join 수 (태그 종류가 폭발하지 않도록 JPQL 전체를 쓰지 않는다)
+    public static String shape(QueryMetadata metadata) {
+        List<JoinExpression> joins = metadata.getJoins();
+        if (joins.isEmpty()) {
+            return "none";
+        }
+        return joins.get(0).getTarget().getType().getSimpleName() + "/" + joins.size();
+    }
+
+    private Meters meters(String method, String operation, String shape) {
+        String key = method + '|' + operation + '|' + shape;
+        Meters m = meters.get(key);
+        if (m == null) {
+            m = meters.computeIfAbsent(key, k -> new Meters(registry, method, operation, shape));
+        }
+        return m;
+    }
+
+    private static final class Meters {
+        private final Timer timer;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+        private final DistributionSummary persistenceContext;
+
+        private Meters(MeterRegistry registry, String method, String operation, String shape) {
+            String[] tags = {"method", method, "operation", operation, "shape", shape};
+            this.timer = Timer.builder("querydsl.query").tags(tags).register(registry);
+            this.rows = DistributionSummary.builder("querydsl.query.rows").tags(tags).register(registry);
+            this.statements = DistributionSummary.builder("querydsl.query.statements").tags(tags).register(registry);
+            this.persistenceContext = DistributionSummary.builder("querydsl.query.persistence-context.size")
+                    .tags(tags).register(registry);
+        }
+    }
+}
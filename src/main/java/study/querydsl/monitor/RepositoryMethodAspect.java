@@ -0,0 +1,38 @@
+package study.querydsl.monitor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * @Repository 메서드 호출 구간에 메서드 이름을 RepositoryMethodContext 에 기록한다.
+ * querydsl.metrics.enabled=false 면 등록하지 않는다. (메서드 태그는 모두 unknown)
+ * */
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "querydsl.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RepositoryMethodAspect {
+
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    @Around("@within(org.springframework.stereotype.Repository)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String name = names.computeIfAbsent(method,
+                m -> m.getDeclaringClass().getSimpleName() + "." + m.getName());
+
+        String previous = RepositoryMethodContext.enter(name);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RepositoryMethodContext.exit(previous);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.monitor;
+
+/*
+ * 현재 스레드에서 실행중인 리포지토리 메서드 이름 (ex. MemberJpaRepository.findAll_Querydsl)
+ * 스택을 뒤지지 않고 쿼리 메트릭 / 커넥션 사용 기록에 호출한 메서드를 태그로 붙이기 위해 사용한다.
+ * */
+public final class RepositoryMethodContext {
+
+    public static final String UNKNOWN = "unknown";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private RepositoryMethodContext() {
+    }
+
+    public static String current() {
+        String method = CURRENT.get();
+        return method == null ? UNKNOWN : method;
+    }
+
+    static String enter(String method) {
+        String previous = CURRENT.get();
+        CURRENT.set(method);
+        return previous;
+    }
+
+    static void exit(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
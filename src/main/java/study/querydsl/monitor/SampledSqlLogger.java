@@ -0,0 +1,153 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 샘플링 + 비동기 SQL 로그 (querydsl.sql-log.mode=sampled)
+ *
+ * 요청 스레드에서는 실행 시간과 SQL 원문만 큐에 넣는다.
+ * SQL 모양 정규화, 히스토그램 기록, 로그 포맷팅은 별도 스레드에서 처리한다.
+ * 로그는 N 건 중 1 건, 또는 느린 쿼리(slow-threshold-ms 이상)만 남긴다.
+ * 큐가 가득 차면 버리고 버린 건수만 센다. (요청 스레드를 막지 않는다)
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.sql-log", name = "mode", havingValue = "sampled")
+public class SampledSqlLogger extends SimpleJdbcEventListener {
+
+    private static final int MAX_SHAPES = 1_000;
+
+    private final int sampleRate;
+    private final long slowThresholdNanos;
+    private final BlockingQueue<Event> queue;
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Thread worker;
+
+    public SampledSqlLogger(@Value("${querydsl.sql-log.sample-rate:100}") int sampleRate,
+                            @Value("${querydsl.sql-log.slow-threshold-ms:100}") long slowThresholdMillis,
+                            @Value("${querydsl.sql-log.queue-size:10000}") int queueSize) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive : " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        Thread thread = new Thread(this::run, "sampled-sql-logger");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        boolean slow = timeElapsedNanos >= slowThresholdNanos;
+        boolean sampled = sequence.incrementAndGet() % sampleRate == 0;
+        // 값이 들어간 SQL 은 로그로 남길 때만 만든다.
+        String sqlWithValues = slow || sampled ? statementInformation.getSqlWithValues() : null;
+        record(statementInformation.getSql(), sqlWithValues, timeElapsedNanos, slow);
+    }
+
+    void record(String sql, String sqlWithValues, long nanos, boolean slow) {
+        if (!queue.offer(new Event(sql, sqlWithValues, nanos, slow))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            try {
+                Event event = queue.poll(1, TimeUnit.SECONDS);
+                if (event != null) {
+                    handle(event);
+                    drain();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("SQL 로그 처리 실패", e);
+            }
+        }
+    }
+
+    void drain() {
+        Event event;
+        while ((event = queue.poll()) != null) {
+            handle(event);
+        }
+    }
+
+    private void handle(Event event) {
+        String shape = SqlShape.normalize(event.sql);
+        LatencyHistogram histogram = histograms.get(shape);
+        if (histogram == null && histograms.size() < MAX_SHAPES) {
+            histogram = histograms.computeIfAbsent(shape, key -> new LatencyHistogram());
+        }
+        if (histogram != null) {
+            histogram.record(event.nanos);
+        }
+
+        if (event.sqlWithValues != null) {
+            long micros = event.nanos / 1_000;
+            if (event.slow) {
+                log.warn("slow sql {}us : {}", micros, event.sqlWithValues);
+            } else {
+                log.info("sampled sql {}us : {}", micros, event.sqlWithValues);
+            }
+        }
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(histograms));
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private static final class Event {
+        private final String sql;
+        private final String sqlWithValues;
+        private final long nanos;
+        private final boolean slow;
+
+        private Event(String sql, String sqlWithValues, long nanos, boolean slow) {
+            this.sql = sql;
+            this.sqlWithValues = sqlWithValues;
+            this.nanos = nanos;
+            this.slow = slow;
+        }
+    }
+}
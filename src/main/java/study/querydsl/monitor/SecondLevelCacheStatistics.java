@@ -0,0 +1,98 @@
+package study.querydsl.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.CacheRegionStats;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.management.MBeanServer;
+import javax.persistence.EntityManagerFactory;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 2차 캐시 통계
+ * hit / miss / put 은 Hibernate 통계, eviction 은 JCache 통계(MBean)에서 가져온다.
+ * Hibernate 통계는 querydsl.cache-statistics.enabled (hibernate.generate_statistics) 일 때만 쌓인다.
+ * */
+@Slf4j
+@Component
+public class SecondLevelCacheStatistics {
+
+    private static final String CACHING_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+
+    private final SessionFactory sessionFactory;
+
+    public SecondLevelCacheStatistics(EntityManagerFactory emf) {
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+    }
+
+    // Hibernate 가 만든 캐시들의 JCache 통계를 켠다. (eviction 수 확인용)
+    @EventListener(ApplicationReadyEvent.class)
+    public void enableJCacheStatistics() {
+        try {
+            CacheManager cacheManager = Caching.getCachingProvider(CACHING_PROVIDER).getCacheManager();
+            for (String cacheName : cacheManager.getCacheNames()) {
+                cacheManager.enableStatistics(cacheName, true);
+            }
+        } catch (RuntimeException e) {
+            log.warn("JCache 통계를 켤 수 없습니다. eviction 수는 -1 로 표시됩니다.", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return sessionFactory.getStatistics().isStatisticsEnabled();
+    }
+
+    // 통계가 꺼져 있으면 0 으로 채운 값 대신 빈 목록을 돌려준다.
+    public List<CacheRegionStats> snapshot() {
+        if (!isEnabled()) {
+            return Collections.emptyList();
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Long> evictions = jcacheEvictions();
+
+        List<CacheRegionStats> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            if (stats == null) {
+                continue;
+            }
+            result.add(new CacheRegionStats(
+                    region,
+                    stats.getHitCount(),
+                    stats.getMissCount(),
+                    stats.getPutCount(),
+                    evictions.getOrDefault(region, -1L),
+                    stats.getElementCountInMemory()));
+        }
+        return result;
+    }
+
+    private Map<String, Long> jcacheEvictions() {
+        Map<String, Long> evictions = new HashMap<>();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                Object value = server.getAttribute(name, "CacheEvictions");
+                if (value instanceof Number) {
+                    evictions.put(name.getKeyProperty("Cache"), ((Number) value).longValue());
+                }
+            }
+        } catch (Exception e) {
+            log.debug("JCache 통계 조회 실패", e);
+        }
+        return evictions;
+    }
+}
@@ -0,0 +1,134 @@
+package study.querydsl.monitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Hibernate 가 만든 SQL(SqlShape 로 정규화된 문자열)에서 조건 / 정렬 컬럼을 뽑는다.
+ *
+ * from member member0_ left outer join team team1_ on member0_.team_id=team1_.id
+ * where member0_.username=? and member0_.age>=? order by member0_.age desc
+ * -> member.team_id(JOIN), team.id(JOIN), member.username(EQUALITY), member.age(RANGE), member.age(SORT)
+ *
+ * 정규식 기반이라 Hibernate 의 SQL 모양(별칭.컬럼)을 전제로 하고, 해석하지 못한 부분은 무시한다.
+ * */
+final class SqlPredicateParser {
+
+    enum Usage {
+        EQUALITY, SORT, RANGE, JOIN
+    }
+
+    static final class ColumnUse {
+        final String table;
+        final String column;
+        final Usage usage;
+
+        ColumnUse(String table, String column, Usage usage) {
+            this.table = table;
+            this.column = column;
+            this.usage = usage;
+        }
+    }
+
+    private static final Pattern TABLE_ALIAS = Pattern.compile("\\b(?:from|join)\\s+(\\w+)\\s+(?:as\\s+)?(\\w+)");
+    private static final Pattern JOIN_CONDITION = Pattern.compile("(\\w+)\\.(\\w+)\\s*=\\s*(\\w+)\\.(\\w+)");
+    private static final Pattern PREDICATE = Pattern.compile(
+            "(\\w+)\\.(\\w+)\\s*(=|<>|!=|>=|<=|>|<|\\s(?:not\\s+)?like\\b|\\s(?:not\\s+)?in\\b|\\sbetween\\b|\\sis\\b)");
+    private static final Pattern COLUMN = Pattern.compile("(\\w+)\\.(\\w+)");
+    private static final String[] WHERE_END = {" group by ", " order by ", " limit ", " offset ", " for update"};
+    private static final String[] ORDER_END = {" limit ", " offset ", " for update"};
+
+    private SqlPredicateParser() {
+    }
+
+    static List<ColumnUse> parse(String shape) {
+        Map<String, String> tables = new HashMap<>();
+        Matcher alias = TABLE_ALIAS.matcher(shape);
+        while (alias.find()) {
+            if (!"select".equals(alias.group(1))) {
+                tables.put(alias.group(2), alias.group(1));
+            }
+        }
+
+        List<ColumnUse> uses = new ArrayList<>();
+        Matcher join = JOIN_CONDITION.matcher(shape);
+        while (join.find()) {
+            add(uses, tables, join.group(1), join.group(2), Usage.JOIN);
+            add(uses, tables, join.group(3), join.group(4), Usage.JOIN);
+        }
+
+        String where = clause(shape, " where ", WHERE_END);
+        if (where != null) {
+            Matcher predicate = PREDICATE.matcher(where);
+            while (predicate.find()) {
+                String operator = predicate.group(3).trim();
+                Usage usage = operator.equals("=") || operator.equals("in") || operator.equals("is")
+                        ? Usage.EQUALITY : Usage.RANGE;
+                if (!isJoinCondition(where, predicate)) {
+                    add(uses, tables, predicate.group(1), predicate.group(2), usage);
+                }
+            }
+        }
+
+        String orderBy = clause(shape, " order by ", ORDER_END);
+        if (orderBy != null) {
+            Matcher column = COLUMN.matcher(orderBy);
+            while (column.find()) {
+                add(uses, tables, column.group(1), column.group(2), Usage.SORT);
+            }
+        }
+        return uses;
+    }
+
+    /*
+     * 가장 바깥쪽(괄호 밖) 절 기준
+     * where 절 안의 서브쿼리 (in (select ... where ...)) 는 where 절에 포함되어 조건 컬럼도 함께 해석된다.
+     * */
+    private static String clause(String shape, String keyword, String[] ends) {
+        int start = indexOfTopLevel(shape, keyword, 0);
+        if (start < 0) {
+            return null;
+        }
+        start += keyword.length();
+        int end = shape.length();
+        for (String candidate : ends) {
+            int index = indexOfTopLevel(shape, candidate, start);
+            if (index >= 0 && index < end) {
+                end = index;
+            }
+        }
+        return shape.substring(start, end);
+    }
+
+    private static int indexOfTopLevel(String shape, String keyword, int from) {
+        int depth = 0;
+        for (int i = from; i < shape.length(); i++) {
+            char c = shape.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && shape.startsWith(keyword, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // where 절의 a.x=b.y (theta join) 은 JOIN 으로 이미 기록했다.
+    private static boolean isJoinCondition(String where, Matcher predicate) {
+        String after = where.substring(predicate.end()).trim();
+        return predicate.group(3).equals("=") && COLUMN.matcher(after).lookingAt();
+    }
+
+    private static void add(List<ColumnUse> uses, Map<String, String> tables, String alias, String column, Usage usage) {
+        String table = tables.get(alias);
+        if (table != null) {
+            uses.add(new ColumnUse(table, column, usage));
+        }
+    }
+}
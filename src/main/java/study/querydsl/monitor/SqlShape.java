@@ -0,0 +1,49 @@
+package study.querydsl.monitor;
+
+import java.util.regex.Pattern;
+
+/*
+ * SQL 모양(shape) 정규화
+ * 주석, 리터럴 값, in 절 목록 길이, 공백 차이를 제거해서 같은 모양의 쿼리를 하나로 묶는다.
+ * ex) select ... where team0_.id=3  ->  select ... where team0_.id=?
+ * */
+public final class SqlShape {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlShape() {
+    }
+
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = COMMENT.matcher(sql).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ");
+        return shape.trim().toLowerCase();
+    }
+
+    public static String stripComments(String sql) {
+        return COMMENT.matcher(sql).replaceAll(" ").trim();
+    }
+
+    // 리터럴 값만 ? 로 바꾼다. (실행 계획처럼 모양은 그대로 보여줄 때)
+    public static String stripLiterals(String text) {
+        if (text == null) {
+            return null;
+        }
+        String stripped = STRING_LITERAL.matcher(text).replaceAll("?");
+        return NUMBER_LITERAL.matcher(stripped).replaceAll("?");
+    }
+
+    public static boolean isSelect(String shape) {
+        return shape.startsWith("select");
+    }
+}
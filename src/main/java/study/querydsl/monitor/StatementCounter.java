@@ -0,0 +1,28 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/*
+ * 현재 스레드에서 실행된 SQL 수 (p6spy 리스너)
+ * 호출 전후 값의 차이로 구간별 SQL 수를 구한다. (QueryMetrics 전용)
+ * */
+@Component
+@ConditionalOnProperty(prefix = "querydsl.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class StatementCounter extends SimpleJdbcEventListener {
+
+    private final ThreadLocal<long[]> counter = ThreadLocal.withInitial(() -> new long[1]);
+
+    public long current() {
+        return counter.get()[0];
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        counter.get()[0]++;
+    }
+}
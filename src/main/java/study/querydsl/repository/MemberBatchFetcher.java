@@ -0,0 +1,119 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * 조회 후(post-load) 연관관계 배치 로딩
+ *
+ * fetchJoin 없이 조회한 회원 목록의 team 을 회원마다 조회(N+1)하지 않고,
+ * 팀 id 를 모아서 in 쿼리 한번(chunk 단위)으로 읽은 뒤 프록시에 연결한다.
+ * 컬렉션 fetch join 과 달리 row 가 늘어나지 않으므로 페이징된 결과에도 그대로 사용할 수 있다.
+ *
+ * 전달받은 엔티티와 같은 영속성 컨텍스트에서 읽어야 프록시가 초기화되므로 호출한 쪽의 트랜잭션에서만 실행한다.
+ * (트랜잭션 없이 호출하면 IllegalTransactionStateException)
+ * */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class MemberBatchFetcher {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final int chunkSize;
+
+    public MemberBatchFetcher(EntityManager em, JPAQueryFactory queryFactory,
+                              @Value("${querydsl.batch-fetch.chunk-size:100}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive : " + chunkSize);
+        }
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    /*
+    * member.team 배치 로딩
+    * select t from Team t where t.id in (...)
+    * */
+    public List<Member> fetchTeams(List<Member> members) {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        Set<Long> teamIds = new LinkedHashSet<>();
+        for (Member m : members) {
+            Team memberTeam = m.getTeam();
+            if (memberTeam != null && !util.isLoaded(memberTeam)) {
+                teamIds.add((Long) util.getIdentifier(memberTeam)); // 프록시 초기화 없이 id 만 꺼낸다.
+            }
+        }
+
+        for (List<Long> chunk : chunks(teamIds)) {
+            queryFactory
+                    .selectFrom(team)
+                    .where(team.id.in(chunk))
+                    .fetch();
+        }
+
+        // 팀이 이미 영속성 컨텍스트에 있으므로 추가 SQL 없이 프록시가 초기화된다.
+        for (Member m : members) {
+            if (m.getTeam() != null) {
+                Hibernate.initialize(m.getTeam());
+            }
+        }
+        return members;
+    }
+
+    /*
+    * team.members 배치 로딩
+    * select distinct t from Team t left join fetch t.members where t.id in (...)
+    * 이미 영속 상태인 팀의 members 컬렉션이 초기화된다.
+    * */
+    public List<Team> fetchMembers(List<Team> teams) {
+        Set<Long> teamIds = new LinkedHashSet<>();
+        for (Team t : teams) {
+            if (!Hibernate.isInitialized(t.getMembers())) {
+                teamIds.add(t.getId());
+            }
+        }
+
+        for (List<Long> chunk : chunks(teamIds)) {
+            queryFactory
+                    .selectFrom(team).distinct()
+                    .leftJoin(team.members, member).fetchJoin()
+                    .where(team.id.in(chunk))
+                    .fetch();
+        }
+        return teams;
+    }
+
+    private List<List<Long>> chunks(Set<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(Math.min(chunkSize, ids.size()));
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() == chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -1,33 +1,120 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamAgeStats;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.AggregateResultCache;
+import study.querydsl.repository.support.ClearingIterator;
+import study.querydsl.repository.support.PreparedQuery;
+import study.querydsl.repository.support.QuerydslPager;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QTeam.team;
 
+// 조회는 읽기 전용 트랜잭션 (replica 라우팅 대상), 저장은 쓰기 트랜잭션
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final QuerydslPager pager;
+    private final AggregateResultCache aggregateResultCache;
+    private final MemberBatchFetcher memberBatchFetcher;
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private final PreparedQuery<Member> findByUsernameQuery;
+
+    // 검색 조건 bit -> 조건 조합(shape)별 쿼리는 한번만 만든다. (최대 32개)
+    private static final int SEARCH_USERNAME = 1;
+    private static final int SEARCH_TEAM_NAME = 1 << 1;
+    private static final int SEARCH_AGE_GOE = 1 << 2;
+    private static final int SEARCH_AGE_LOE = 1 << 3;
+    private static final int SEARCH_AFTER_ID = 1 << 4;
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "searchUsername");
+    private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "searchTeamName");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "searchAgeGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "searchAgeLoe");
+    private static final Param<Long> AFTER_ID_PARAM = new Param<>(Long.class, "searchAfterId");
+    private final Map<Integer, PreparedQuery<MemberTeamDto>> searchQueries = new ConcurrentHashMap<>();
 
     // Bean 으로 등록된 JPAQueryFactory를 DI하여 사용할 수 있다.
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, QuerydslPager pager,
+                               AggregateResultCache aggregateResultCache, MemberBatchFetcher memberBatchFetcher) {
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
+        this.queryFactory = queryFactory;
+        this.pager = pager;
+        this.aggregateResultCache = aggregateResultCache;
+        this.memberBatchFetcher = memberBatchFetcher;
+        this.findByUsernameQuery = PreparedQuery.of(em, queryFactory
+                .selectFrom(member)
+                .where(member.username.eq(USERNAME)));
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
 
+    /*
+    * 대량 저장
+    * chunkSize 건마다 flush(JDBC 배치 insert) 후 clear 해서 영속성 컨텍스트가 커지지 않게 한다.
+    * 아직 저장되지 않은 팀은 같이 저장한다.
+    * 주의) clear 하므로 호출 후 전달한 엔티티는 준영속 상태가 된다.
+    * */
+    @Transactional
+    public void saveAll(List<Member> members, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive : " + chunkSize);
+        }
+        int count = 0;
+        for (Member m : members) {
+            Team memberTeam = m.getTeam();
+            if (memberTeam != null && memberTeam.getId() == null) {
+                em.persist(memberTeam);
+            }
+            em.persist(m);
+            if (++count % chunkSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
@@ -38,6 +125,19 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    /*
+    * 스트리밍 조회 (대용량)
+    * forward-only 커서로 fetchSize 만큼씩 읽고, clearEvery 건마다 영속성 컨텍스트를 비운다.
+    * 트랜잭션 안에서 사용하고, 사용 후 반드시 close (try-with-resources) 해야 커서가 닫힌다.
+    * */
+    public Stream<Member> streamAll(int fetchSize, int clearEvery) {
+        Stream<Member> rows = em.createQuery("select m from Member m", Member.class)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true) // 스냅샷을 만들지 않는다.
+                .getResultStream();
+        return clearing(rows.iterator(), clearEvery).onClose(rows::close);
+    }
+
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = : username", Member.class)
                 .setParameter("username", username)
@@ -51,10 +151,217 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    public Stream<Member> streamAll_Querydsl(int fetchSize, int clearEvery) {
+        CloseableIterator<Member> rows = queryFactory
+                .selectFrom(member)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate(); // Hibernate 에서는 ScrollMode.FORWARD_ONLY 로 실행된다.
+        return clearing(rows, clearEvery).onClose(rows::close);
+    }
+
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
                 .fetch();
     }
+
+    // 쿼리 모양은 한번만 만들고 파라미터만 바인딩
+    public List<Member> findByUsername_Prepared(String username) {
+        return findByUsernameQuery
+                .bind(USERNAME, username)
+                .fetch();
+    }
+
+    /*
+    * 페이징 (count 쿼리 최적화)
+    * count 쿼리에서는 order by, fetch join, member.team left join 이 제거된다.
+    * */
+    public Page<Member> findPage_Querydsl(Pageable pageable) {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .orderBy(member.username.desc());
+        return pager.page(query, pageable);
+    }
+
+    /*
+    * Keyset(seek) 페이징
+    * offset 방식은 건너뛴 row를 모두 읽고 버리지만, keyset 방식은 마지막으로 본 정렬 키 이후부터 바로 읽는다.
+    * 정렬 : age desc, username asc nulls last, member_id asc (타이브레이커)
+    * 페이지의 team 은 MemberBatchFetcher 로 in 쿼리 한번에 읽는다. (fetch join 없이 limit 유지)
+    * */
+    public CursorPage<Member> findPageByCursor(String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive : " + size);
+        }
+        MemberCursor after = MemberCursor.decode(cursor);
+
+        List<Member> rows = queryFactory
+                .selectFrom(member)
+                .where(afterCursor(after))
+                .orderBy(keysetOrder())
+                .limit(size + 1) // 한 건 더 조회해서 다음 페이지 존재 여부 확인
+                .fetch();
+
+        if (rows.size() <= size) {
+            return new CursorPage<>(memberBatchFetcher.fetchTeams(rows), null);
+        }
+        List<Member> content = memberBatchFetcher.fetchTeams(rows.subList(0, size));
+        return new CursorPage<>(content, MemberCursor.of(content.get(size - 1)).encode());
+    }
+
+    /*
+    * 동적 검색
+    * 값이 있는 조건만 where 절에 들어가고, 조건 조합이 같으면 같은 JPQL 을 재사용한다. (값은 파라미터로 바인딩)
+    * */
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return searchExecution(condition, null).fetch();
+    }
+
+    /*
+    * 동적 검색 + keyset 페이징 (member_id 순서, 커서 = 마지막 member_id)
+    * 커서 유무도 조건 조합에 포함되고, 페이지 크기는 limit 으로만 바뀐다.
+    * */
+    public CursorPage<MemberTeamDto> searchPage(MemberSearchCondition condition, Long afterId, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive : " + size);
+        }
+        List<MemberTeamDto> rows = searchExecution(condition, afterId)
+                .limit(size + 1) // 한 건 더 조회해서 다음 페이지 존재 여부 확인
+                .fetch();
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<MemberTeamDto> content = rows.subList(0, size);
+        return new CursorPage<>(content, String.valueOf(content.get(size - 1).getMemberId()));
+    }
+
+    private PreparedQuery<MemberTeamDto>.Execution searchExecution(MemberSearchCondition condition, Long afterId) {
+        int shape = searchShape(condition, afterId);
+        PreparedQuery<MemberTeamDto>.Execution execution = searchQuery(shape).execution();
+        if ((shape & SEARCH_USERNAME) != 0) {
+            execution.bind(USERNAME_PARAM, condition.getUsername());
+        }
+        if ((shape & SEARCH_TEAM_NAME) != 0) {
+            execution.bind(TEAM_NAME_PARAM, condition.getTeamName());
+        }
+        if ((shape & SEARCH_AGE_GOE) != 0) {
+            execution.bind(AGE_GOE_PARAM, condition.getAgeGoe());
+        }
+        if ((shape & SEARCH_AGE_LOE) != 0) {
+            execution.bind(AGE_LOE_PARAM, condition.getAgeLoe());
+        }
+        if ((shape & SEARCH_AFTER_ID) != 0) {
+            execution.bind(AFTER_ID_PARAM, afterId);
+        }
+        return execution;
+    }
+
+    String searchJpql(MemberSearchCondition condition) {
+        return searchQuery(searchShape(condition, null)).getJpql();
+    }
+
+    private PreparedQuery<MemberTeamDto> searchQuery(int shape) {
+        return searchQueries.computeIfAbsent(shape, s -> PreparedQuery.of(em, queryFactory
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(when(s, SEARCH_USERNAME, member.username.eq(USERNAME_PARAM)),
+                        when(s, SEARCH_TEAM_NAME, team.name.eq(TEAM_NAME_PARAM)),
+                        when(s, SEARCH_AGE_GOE, member.age.goe(AGE_GOE_PARAM)),
+                        when(s, SEARCH_AGE_LOE, member.age.loe(AGE_LOE_PARAM)),
+                        when(s, SEARCH_AFTER_ID, member.id.gt(AFTER_ID_PARAM)))
+                .orderBy(member.id.asc())));
+    }
+
+    private static int searchShape(MemberSearchCondition condition, Long afterId) {
+        int shape = afterId == null ? 0 : SEARCH_AFTER_ID;
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape |= SEARCH_USERNAME;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape |= SEARCH_TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= SEARCH_AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= SEARCH_AGE_LOE;
+        }
+        return shape;
+    }
+
+    // 조건이 shape 에 없으면 null -> where 절에서 무시된다.
+    private static BooleanExpression when(int shape, int bit, BooleanExpression expression) {
+        return (shape & bit) != 0 ? expression : null;
+    }
+
+    /*
+    * 팀별 나이 집계 (count, sum, avg, max, min)
+    * 결과는 캐시되고 Member / Team 이 변경되면 다시 계산한다.
+    * */
+    public List<TeamAgeStats> findTeamAgeStats() {
+        List<Tuple> rows = aggregateResultCache.fetch(queryFactory
+                .select(team.name,
+                        member.count(),
+                        member.age.sum(),
+                        member.age.avg(),
+                        member.age.max(),
+                        member.age.min())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .orderBy(team.name.asc()));
+
+        // JPQL sum(int) 의 결과 타입은 Long 이므로 Number 로 변환한다.
+        return rows.stream()
+                .map(t -> new TeamAgeStats(
+                        t.get(team.name),
+                        t.get(member.count()),
+                        t.get(2, Number.class).longValue(),
+                        t.get(member.age.avg()),
+                        t.get(member.age.max()),
+                        t.get(member.age.min())))
+                .collect(Collectors.toList());
+    }
+
+    private OrderSpecifier<?>[] keysetOrder() {
+        return new OrderSpecifier<?>[]{
+                member.age.desc(),
+                member.username.asc().nullsLast(),
+                member.id.asc()
+        };
+    }
+
+    // 커서 이후의 row 조건, 첫 페이지는 null -> where 절에서 무시된다.
+    private BooleanExpression afterCursor(MemberCursor after) {
+        if (after == null) {
+            return null;
+        }
+        return member.age.lt(after.getAge())
+                .or(member.age.eq(after.getAge()).and(usernameAfter(after)));
+    }
+
+    // username asc nulls last 이므로 null은 항상 문자열 뒤에 위치한다.
+    private BooleanExpression usernameAfter(MemberCursor after) {
+        if (after.getUsername() == null) {
+            return member.username.isNull().and(member.id.gt(after.getId()));
+        }
+        return member.username.gt(after.getUsername())
+                .or(member.username.isNull())
+                .or(member.username.eq(after.getUsername()).and(member.id.gt(after.getId())));
+    }
+
+    private Stream<Member> clearing(Iterator<Member> rows, int clearEvery) {
+        Iterator<Member> iterator = new ClearingIterator<>(rows, em, clearEvery);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
 }
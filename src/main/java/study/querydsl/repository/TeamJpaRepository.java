@@ -0,0 +1,50 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.QueryCacheHints.cacheable;
+
+@Repository
+@Transactional(readOnly = true)
+public class TeamJpaRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    public TeamJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+    }
+
+    @Transactional
+    public void save(Team team) {
+        em.persist(team);
+    }
+
+    // 2차 캐시에 있으면 DB 를 조회하지 않는다.
+    public Optional<Team> findById(Long id) {
+        return Optional.ofNullable(em.find(Team.class, id));
+    }
+
+    // 쿼리 캐시 -> id 목록, 2차 캐시 -> 엔티티
+    public List<Team> findByName_Querydsl(String name) {
+        return cacheable(queryFactory
+                .selectFrom(team)
+                .where(team.name.eq(name)))
+                .fetch();
+    }
+
+    public List<Team> findAll_Querydsl() {
+        return cacheable(queryFactory
+                .selectFrom(team))
+                .fetch();
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/*
+ * Hibernate 엔티티 이벤트(insert, update, delete)를 AggregateResultCache 무효화로 전달한다.
+ * 이벤트는 flush 시점에 발생하고, 캐시는 트랜잭션이 끝날때 한번 더 무효화한다.
+ * */
+@Component
+public class AggregateCacheInvalidator
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final AggregateResultCache cache;
+
+    public AggregateCacheInvalidator(EntityManagerFactory emf, AggregateResultCache cache) {
+        this.emf = emf;
+        this.cache = cache;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        cache.changed(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        cache.changed(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        cache.changed(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,314 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * 집계(groupBy, count, sum, avg ...) 쿼리 결과 캐시
+ *
+ * 키 : JPQL + 바인딩 값(상수, Param) + limit/offset
+ * 크기 제한(LRU)과 TTL 로 제거하고, 쿼리가 참조하는 엔티티 타입이 변경되면 무효화한다.
+ *
+ * 무효화는 엔티티 타입별 세대(generation) 번호(EntityVersions)로 한다.
+ * 항목은 계산을 시작할때의 세대를 기억하고, 조회 시 세대가 바뀌었으면 버린다.
+ * -> Member 가 변경되면 Member 를 참조하는 집계만 무효화되고 Team 만 조회하는 집계는 유지된다.
+ *
+ * 변경은 커밋(롤백) 시점에 한번 더 무효화해서, 커밋 전에 다른 트랜잭션이 예전 값으로 다시 채운 항목도 버린다.
+ * 변경한 트랜잭션 안에서는 해당 타입을 참조하는 집계에 캐시를 사용하지 않는다. (커밋되지 않은 값이 캐시되지 않게)
+ * flush 되지 않은 변경이 있을 수 있으면 타입과 관계없이 캐시를 사용하지 않는다.
+ * (insert / delete 대기 중이거나, 수정 가능한 엔티티가 영속성 컨텍스트에 있을때. 읽기 전용 트랜잭션은 항상 캐시 사용)
+ *
+ * 엔티티 이벤트는 AggregateCacheInvalidator 가 전달하고, 벌크 연산은 changed() 를 직접 호출해야 한다.
+ * 주의) 결과를 여러 트랜잭션이 공유하므로 엔티티 조회에는 사용할 수 없다. (스칼라 / Tuple / DTO 만, 인자에 엔티티가 있는 Tuple / DTO 도 거부)
+ * */
+@Component
+public class AggregateResultCache {
+
+    private final EntityManager em;
+    private final EntityVersions versions;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AggregateResultCache(EntityManager em, EntityVersions versions,
+                                @Value("${querydsl.aggregate-cache.max-size:1000}") int maxSize,
+                                @Value("${querydsl.aggregate-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.em = em;
+        this.versions = versions;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, AggregateResultCache.Entry> eldest) {
+                return size() > AggregateResultCache.this.maxSize;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> fetch(JPAQuery<T> query) {
+        QueryMetadata metadata = query.getMetadata();
+        Set<Class<?>> dependencies = dependencies(metadata);
+        if (dependencies.isEmpty() || containsEntity(metadata.getProjection())) {
+            throw new IllegalArgumentException("entity projection cannot be cached : " + metadata.getProjection());
+        }
+        if (changedInCurrentTransaction(dependencies) || hasPendingChanges()) {
+            return query.fetch();
+        }
+
+        Key key = key(metadata, dependencies);
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.isValid(now)) {
+            hits.increment();
+            return (List<T>) entry.result;
+        }
+
+        misses.increment();
+        Map<Class<?>, Long> snapshot = generationSnapshot(dependencies); // 실행 전 세대
+        List<T> result = Collections.unmodifiableList(new ArrayList<>(query.fetch()));
+        if (!changedInCurrentTransaction(dependencies)) { // auto flush 로 실행 중에 변경된 경우
+            synchronized (entries) {
+                entries.put(key, new Entry(result, snapshot, now + ttlMillis));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * 엔티티 타입 변경 알림
+     * 트랜잭션 안이면 즉시 무효화하고, 트랜잭션이 끝날때(커밋, 롤백) 다시 무효화한다.
+     * */
+    public void changed(Class<?> entityType) {
+        invalidate(entityType);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Set<Class<?>> changed = changedTypes();
+        if (changed == null) {
+            Set<Class<?>> types = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, types);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AggregateResultCache.this);
+                    types.forEach(AggregateResultCache.this::invalidate);
+                }
+            });
+            changed = types;
+        }
+        changed.add(entityType);
+    }
+
+    public void invalidate(Class<?> entityType) {
+        versions.increment(entityType);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Class<?>> changedTypes() {
+        return (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private boolean changedInCurrentTransaction(Set<Class<?>> dependencies) {
+        Set<Class<?>> changed = changedTypes();
+        return changed != null && !Collections.disjoint(changed, dependencies);
+    }
+
+    /*
+     * 아직 flush 되지 않은 변경 (이벤트는 flush 때 발생하므로 타입을 알 수 없다.)
+     * Session.isDirty() 는 조회마다 영속성 컨텍스트 전체를 dirty check 하므로 쓰지 않는다.
+     * persist / remove 는 ActionQueue 에 바로 쌓이고, update 는 수정 가능한 엔티티가 있을때만 생긴다.
+     * */
+    private boolean hasPendingChanges() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        return session.getActionQueue().hasAnyQueuedActions()
+                || session.getPersistenceContext().hasNonReadOnlyEntities();
+    }
+
+    private Map<Class<?>, Long> generationSnapshot(Set<Class<?>> dependencies) {
+        Map<Class<?>, Long> snapshot = new HashMap<>();
+        for (Class<?> type : dependencies) {
+            snapshot.put(type, versions.get(type));
+        }
+        return snapshot;
+    }
+
+    private Key key(QueryMetadata metadata, Set<Class<?>> dependencies) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(metadata, false, null);
+        Map<ParamExpression<?>, Object> params = metadata.getParams();
+        List<Object> values = new ArrayList<>(serializer.getConstants());
+        for (Object constant : serializer.getConstants()) {
+            if (constant instanceof ParamExpression) {
+                values.add(params.get(constant));
+            }
+        }
+        values.add(metadata.getModifiers().getLimit());
+        values.add(metadata.getModifiers().getOffset());
+        return new Key(serializer.toString(), values);
+    }
+
+    // 엔티티 자체 또는 엔티티를 인자로 갖는 Tuple / DTO (select(member, member.age))
+    private static boolean containsEntity(Expression<?> projection) {
+        if (projection == null) {
+            return false;
+        }
+        if (projection.getType().isAnnotationPresent(Entity.class)) {
+            return true;
+        }
+        if (projection instanceof FactoryExpression) {
+            for (Expression<?> arg : ((FactoryExpression<?>) projection).getArgs()) {
+                if (containsEntity(arg)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 쿼리에서 참조하는 엔티티 타입 (join, 서브쿼리, 묵시적 조인 member.team.name 포함)
+    private static Set<Class<?>> dependencies(QueryMetadata metadata) {
+        Set<Path<?>> paths = new HashSet<>();
+        PathCollector collector = new PathCollector();
+        collector.collect(metadata.getProjection(), paths);
+        collector.collect(metadata.getWhere(), paths);
+        collector.collect(metadata.getHaving(), paths);
+        for (Expression<?> groupBy : metadata.getGroupBy()) {
+            collector.collect(groupBy, paths);
+        }
+        for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+            collector.collect(order.getTarget(), paths);
+        }
+        for (JoinExpression join : metadata.getJoins()) {
+            collector.collect(join.getTarget(), paths);
+            collector.collect(join.getCondition(), paths);
+        }
+
+        Set<Class<?>> types = new HashSet<>();
+        for (Path<?> path : paths) {
+            Class<?> type = path instanceof CollectionExpression
+                    ? ((CollectionExpression<?, ?>) path).getParameter(0)
+                    : path.getType();
+            if (type.isAnnotationPresent(Entity.class)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    // 루트만이 아니라 경로의 모든 단계를 모은다.
+    private static final class PathCollector extends PathReferenceCollector {
+        @Override
+        public Void visit(Path<?> expr, Set<Path<?>> paths) {
+            for (Path<?> p = expr; p != null; p = p.getMetadata().getParent()) {
+                paths.add(p);
+            }
+            return null;
+        }
+    }
+
+    private static final class Key {
+        private final String jpql;
+        private final List<Object> values;
+        private final int hash;
+
+        private Key(String jpql, List<Object> values) {
+            this.jpql = jpql;
+            this.values = values;
+            this.hash = 31 * jpql.hashCode() + values.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && jpql.equals(other.jpql) && values.equals(other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final class Entry {
+        private final List<?> result;
+        private final Map<Class<?>, Long> generations;
+        private final long expiresAt;
+
+        private Entry(List<?> result, Map<Class<?>, Long> generations, long expiresAt) {
+            this.result = result;
+            this.generations = generations;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid(long now) {
+            if (now >= expiresAt) {
+                return false;
+            }
+            for (Map.Entry<Class<?>, Long> e : generations.entrySet()) {
+                if (versions.get(e.getKey()) != e.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.config.datasource.ReadYourWrites;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/*
+ * Querydsl 쿼리를 별도 스레드에서 실행하고 CompletableFuture 로 돌려준다.
+ * 독립적인 쿼리(content / count, 대시보드의 여러 집계)를 동시에 실행할 때 사용한다.
+ *
+ * - 스레드 수와 대기 큐 크기가 고정된 풀을 사용한다. 큐가 가득 차면 RejectedExecutionException 으로 실패한 future 를 돌려준다.
+ * - 작업마다 새 읽기 전용 트랜잭션(= 새 EntityManager, 커넥션)에서 실행된다.
+ *   호출한 쪽 트랜잭션의 커밋되지 않은 변경은 보이지 않고, 결과 엔티티는 준영속 상태이므로 DTO 조회를 권장한다.
+ * - timeout 은 트랜잭션 타임아웃으로 적용되고, Hibernate 가 남은 시간을 JDBC Statement#setQueryTimeout 으로 설정한다.
+ * - cancel(true) 는 실행 중인 JDBC Statement 를 취소하고(Session#cancelQuery -> Statement#cancel) 작업 스레드를 인터럽트한다.
+ *   (인터럽트만으로는 DB 에서 실행 중인 쿼리가 멈추지 않는다.) 아직 시작하지 않은 작업은 쿼리를 실행하지 않고 롤백한다.
+ * */
+@Slf4j
+@Component
+public class AsyncQueryExecutor implements DisposableBean {
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+    private final ThreadPoolExecutor executor;
+    private final Duration defaultTimeout;
+
+    public AsyncQueryExecutor(JPAQueryFactory queryFactory, EntityManager em, PlatformTransactionManager transactionManager,
+                              @Value("${querydsl.async.threads:8}") int threads,
+                              @Value("${querydsl.async.queue-capacity:100}") int queueCapacity,
+                              @Value("${querydsl.async.timeout-seconds:5}") int timeoutSeconds) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.transactionManager = transactionManager;
+        this.defaultTimeout = Duration.ofSeconds(timeoutSeconds);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "querydsl-async-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public <T> CompletableFuture<T> submit(Function<JPAQueryFactory, T> query) {
+        return submit(query, defaultTimeout);
+    }
+
+    public <T> CompletableFuture<T> submit(Function<JPAQueryFactory, T> query, Duration timeout) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setTimeout((int) Math.max(1, timeout.toSeconds()));
+
+        boolean pinned = ReadYourWrites.isPinned(); // 호출한 요청이 primary 에 고정되어 있으면 작업도 primary 에서 읽는다.
+        QueryFuture<T> future = new QueryFuture<>();
+        try {
+            future.task = executor.submit(() -> {
+                if (pinned) {
+                    ReadYourWrites.pin();
+                }
+                try {
+                    future.complete(transactionTemplate.execute(status -> {
+                        // 이 트랜잭션의 세션 (Session 으로 꺼내면 공유 EntityManager 프록시 자신이 나온다.)
+                        future.session = em.unwrap(SessionImplementor.class);
+                        try {
+                            if (future.isCancelled()) {
+                                status.setRollbackOnly();
+                                return null;
+                            }
+                            T result = query.apply(queryFactory);
+                            if (Thread.currentThread().isInterrupted()) {
+                                status.setRollbackOnly();
+                            }
+                            return result;
+                        } finally {
+                            future.session = null;
+                        }
+                    }));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    ReadYourWrites.clear();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * CompletableFuture#cancel 은 실행 중인 작업을 멈추지 않으므로 실제 작업도 같이 취소한다.
+     * Session#cancelQuery 는 다른 스레드에서 호출해도 되는 유일한 Session 메서드다. (마지막으로 실행한 Statement 를 cancel)
+     * */
+    private static final class QueryFuture<T> extends CompletableFuture<T> {
+
+        private volatile Future<?> task;
+        private volatile Session session;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (!cancelled) {
+                return false;
+            }
+            Session running = session;
+            if (mayInterruptIfRunning && running != null) {
+                try {
+                    running.cancelQuery();
+                } catch (HibernateException e) {
+                    log.debug("실행 중인 쿼리 취소 실패", e);
+                }
+            }
+            Future<?> current = task;
+            if (current != null) {
+                current.cancel(mayInterruptIfRunning);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.repository.support;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * N 건마다 영속성 컨텍스트를 비우는 Iterator
+ * 스트리밍 조회시 이미 반환한 엔티티가 영속성 컨텍스트에 계속 쌓이지 않게 한다.
+ * 주의) em.clear() 이므로 같은 트랜잭션에서 flush 되지 않은 변경은 버려진다.
+ * */
+public class ClearingIterator<T> implements Iterator<T> {
+
+    private final Iterator<T> delegate;
+    private final EntityManager em;
+    private final int clearEvery;
+    private long count;
+
+    public ClearingIterator(Iterator<T> delegate, EntityManager em, int clearEvery) {
+        if (clearEvery <= 0) {
+            throw new IllegalArgumentException("clearEvery must be positive : " + clearEvery);
+        }
+        this.delegate = delegate;
+        this.em = em;
+        this.clearEvery = clearEvery;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!delegate.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // 이전에 반환한 엔티티는 호출한 쪽에서 처리가 끝난 상태
+        if (count > 0 && count % clearEvery == 0) {
+            em.clear();
+        }
+        count++;
+        return delegate.next();
+    }
+}
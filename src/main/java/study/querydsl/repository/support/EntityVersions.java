@@ -0,0 +1,31 @@
+package study.querydsl.repository.support;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 엔티티 타입(테이블)별 변경 번호
+ * 변경될때마다 증가한다. (AggregateResultCache 무효화, HTTP ETag)
+ *
+ * 이 JVM 에서 JPA 로 변경한 것만 반영된다. (네이티브 쿼리, 다른 서버의 변경은 알 수 없음)
+ * */
+@Component
+public class EntityVersions {
+
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long get(Class<?> entityType) {
+        return counter(entityType).get();
+    }
+
+    public void increment(Class<?> entityType) {
+        counter(entityType).incrementAndGet();
+    }
+
+    private AtomicLong counter(Class<?> entityType) {
+        return versions.computeIfAbsent(entityType, type -> new AtomicLong());
+    }
+}
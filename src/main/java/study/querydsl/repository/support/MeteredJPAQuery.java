@@ -0,0 +1,63 @@
+package study.querydsl.repository.support;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.JPQLTemplates;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.repository.support.SubqueryRewriter.Rewrite;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * 실행 메서드(fetch, fetchOne, fetchResults, fetchCount)마다 QueryMetrics 에 기록하는 JPAQuery
+ * select(...) 는 같은 인스턴스를 반환하므로 select 이후에도 유지된다.
+ * 태그는 재작성 전 메타데이터 모양이다. (querydsl.subquery-rewrite 를 바꿔도 같은 쿼리로 집계)
+ * */
+public class MeteredJPAQuery<T> extends RewritingJPAQuery<T> {
+
+    private final QueryMetrics metrics;
+
+    public MeteredJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata, QueryMetrics metrics,
+                           SubqueryRewriter rewriter, Set<Rewrite> rewrites) {
+        super(em, templates, metadata, rewriter, rewrites);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected MeteredJPAQuery<T> copy(EntityManager entityManager, QueryMetadata metadata, Set<Rewrite> rewrites) {
+        return new MeteredJPAQuery<>(entityManager, getTemplates(), metadata, metrics, rewriter(), rewrites);
+    }
+
+    QueryMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public List<T> fetch() {
+        return metrics.record("fetch", getMetadata(), super::fetch, List::size);
+    }
+
+    @Override
+    public T fetchOne() {
+        return metrics.record("fetchOne", getMetadata(), super::fetchOne, result -> 1);
+    }
+
+    @Override
+    public QueryResults<T> fetchResults() {
+        return metrics.record("fetchResults", getMetadata(), super::fetchResults, r -> r.getResults().size());
+    }
+
+    @Override
+    public long fetchCount() {
+        return metrics.record("fetchCount", getMetadata(), super::fetchCount, count -> 1);
+    }
+
+    // 스트리밍은 실행(커서 열기)까지만 측정한다.
+    @Override
+    public CloseableIterator<T> iterate() {
+        return metrics.record("iterate", getMetadata(), super::iterate, iterator -> 0);
+    }
+}
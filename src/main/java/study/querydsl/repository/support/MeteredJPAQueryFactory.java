@@ -0,0 +1,66 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import study.querydsl.monitor.QueryMetrics;
+
+import javax.persistence.EntityManager;
+
+/*
+ * 메트릭을 기록하는 JPAQueryFactory
+ * select / selectFrom / from 은 모두 query() 를 거치므로 query() 만 바꾸면 된다.
+ * update / delete 는 execute() 를 측정한다.
+ * 조회 쿼리는 querydsl.subquery-rewrite 의 서브쿼리 재작성도 함께 적용한다.
+ * */
+public class MeteredJPAQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+    private final QueryMetrics metrics;
+    private final SubqueryRewriter rewriter;
+
+    public MeteredJPAQueryFactory(EntityManager em, QueryMetrics metrics, SubqueryRewriter rewriter) {
+        super(em);
+        this.em = em;
+        this.metrics = metrics;
+        this.rewriter = rewriter;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return new MeteredJPAQuery<Void>(em, templates(), new DefaultQueryMetadata(), metrics, rewriter, rewriter.defaults());
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new JPAUpdateClause(em, path, templates()) {
+            @Override
+            public long execute() {
+                return metrics.record("update", shape(path), super::execute, affected -> affected);
+            }
+        };
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(em, path, templates()) {
+            @Override
+            public long execute() {
+                return metrics.record("delete", shape(path), super::execute, affected -> affected);
+            }
+        };
+    }
+
+    private JPQLTemplates templates() {
+        return JPAProvider.getTemplates(em);
+    }
+
+    private static String shape(EntityPath<?> path) {
+        return path.getType().getSimpleName() + "/1";
+    }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+
+import java.util.Set;
+
+/*
+ * 표현식 안에서 참조하는 루트 경로(별칭)를 모은다.
+ * ex) team.name.eq("teamA") -> team
+ * */
+class PathReferenceCollector implements Visitor<Void, Set<Path<?>>> {
+
+    static final PathReferenceCollector DEFAULT = new PathReferenceCollector();
+
+    void collect(Expression<?> expr, Set<Path<?>> roots) {
+        if (expr != null) {
+            expr.accept(this, roots);
+        }
+    }
+
+    @Override
+    public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+        return null;
+    }
+
+    @Override
+    public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+        for (Expression<?> arg : expr.getArgs()) {
+            collect(arg, roots);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+        for (Expression<?> arg : expr.getArgs()) {
+            collect(arg, roots);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Path<?> expr, Set<Path<?>> roots) {
+        roots.add(expr.getRoot());
+        return null;
+    }
+
+    @Override
+    public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+        QueryMetadata md = expr.getMetadata();
+        collect(md.getProjection(), roots);
+        collect(md.getWhere(), roots);
+        collect(md.getHaving(), roots);
+        for (JoinExpression join : md.getJoins()) {
+            collect(join.getTarget(), roots);
+            collect(join.getCondition(), roots);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+        for (Object arg : expr.getArgs()) {
+            if (arg instanceof Expression) {
+                collect((Expression<?>) arg, roots);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,187 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionUtils;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import study.querydsl.monitor.QueryMetrics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 미리 준비된(prepared) Querydsl 쿼리
+ *
+ * 쿼리 모양(shape)은 Param 자리표시자로 한번만 만들고, JPQL 직렬화 결과를 캐시한다.
+ * 호출마다 메타데이터 생성 / JPQL 직렬화를 반복하지 않고 파라미터만 바인딩한다.
+ * JPQL 문자열이 항상 같으므로 Hibernate 의 쿼리 플랜 캐시(QueryPlanCache)도 매번 히트한다.
+ * 모양 쿼리가 MeteredJPAQuery 면(querydsl.metrics.enabled) 실행도 QueryMetrics 에 같은 shape 태그로 기록한다.
+ *
+ * ex)
+ * Param<String> USERNAME = new Param<>(String.class, "username");
+ * PreparedQuery<Member> query = PreparedQuery.of(em, queryFactory.selectFrom(member).where(member.username.eq(USERNAME)));
+ * query.bind(USERNAME, "member1").fetch();
+ * */
+public class PreparedQuery<T> {
+
+    private final EntityManager em;
+    private final QueryMetadata metadata;
+    private final QueryMetrics metrics;
+    private final String metricsShape;
+    private volatile Compiled compiled;
+
+    private PreparedQuery(EntityManager em, QueryMetadata metadata, QueryMetrics metrics) {
+        this.em = em;
+        this.metadata = metadata;
+        this.metrics = metrics;
+        this.metricsShape = QueryMetrics.shape(metadata);
+    }
+
+    public static <T> PreparedQuery<T> of(EntityManager em, JPAQuery<T> shape) {
+        QueryMetrics metrics = shape instanceof MeteredJPAQuery ? ((MeteredJPAQuery<T>) shape).metrics() : null;
+        return new PreparedQuery<>(em, shape.getMetadata().clone(), metrics);
+    }
+
+    public <P> Execution bind(ParamExpression<P> param, P value) {
+        return new Execution().bind(param, value);
+    }
+
+    public Execution execution() {
+        return new Execution();
+    }
+
+    public String getJpql() {
+        return compile().jpql;
+    }
+
+    private Compiled compile() {
+        Compiled result = compiled;
+        if (result == null) {
+            synchronized (this) {
+                result = compiled;
+                if (result == null) {
+                    JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+                    serializer.serialize(metadata, false, null);
+                    result = new Compiled(serializer.toString(),
+                            Collections.unmodifiableList(new ArrayList<>(serializer.getConstants())),
+                            metadata.getProjection());
+                    compiled = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Compiled {
+        private final String jpql;
+        private final List<Object> constants;
+        private final FactoryExpression<?> factory;
+
+        private Compiled(String jpql, List<Object> constants, Expression<?> projection) {
+            this.jpql = jpql;
+            this.constants = constants;
+            this.factory = projection instanceof FactoryExpression
+                    ? FactoryExpressionUtils.wrap((FactoryExpression<?>) projection)
+                    : null;
+        }
+    }
+
+    /*
+    * 호출 단위의 파라미터 바인딩
+    * */
+    public class Execution {
+
+        private final Map<ParamExpression<?>, Object> params = new HashMap<>();
+        private Integer limit;
+
+        public <P> Execution bind(ParamExpression<P> param, P value) {
+            params.put(param, value);
+            return this;
+        }
+
+        // 호출마다 다른 limit (JPQL 에 포함되지 않으므로 쿼리 모양은 그대로)
+        public Execution limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public List<T> fetch() {
+            if (metrics == null) {
+                return doFetch();
+            }
+            return metrics.record("fetch", metricsShape, this::doFetch, List::size);
+        }
+
+        public T fetchOne() {
+            if (metrics == null) {
+                return doFetchOne();
+            }
+            return metrics.record("fetchOne", metricsShape, this::doFetchOne, result -> 1);
+        }
+
+        private List<T> doFetch() {
+            Compiled c = compile();
+            List<?> rows = createQuery(c).getResultList();
+            if (c.factory == null) {
+                @SuppressWarnings("unchecked")
+                List<T> result = (List<T>) rows;
+                return result;
+            }
+            List<T> result = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                result.add(transform(c.factory, row));
+            }
+            return result;
+        }
+
+        private T doFetchOne() {
+            Compiled c = compile();
+            try {
+                Object row = createQuery(c).getSingleResult();
+                return c.factory == null ? cast(row) : transform(c.factory, row);
+            } catch (NoResultException e) {
+                return null;
+            }
+        }
+
+        private Query createQuery(Compiled c) {
+            Query query = em.createQuery(c.jpql);
+            JPAUtil.setConstants(query, c.constants, params);
+            QueryModifiers modifiers = metadata.getModifiers();
+            if (modifiers != null && modifiers.isRestricting()) {
+                if (modifiers.getLimitAsInteger() != null) {
+                    query.setMaxResults(modifiers.getLimitAsInteger());
+                }
+                if (modifiers.getOffsetAsInteger() != null) {
+                    query.setFirstResult(modifiers.getOffsetAsInteger());
+                }
+            }
+            if (limit != null) {
+                query.setMaxResults(limit);
+            }
+            return query;
+        }
+
+        private T transform(FactoryExpression<?> factory, Object row) {
+            Object[] args = row instanceof Object[] ? (Object[]) row : new Object[]{row};
+            return cast(factory.newInstance(args));
+        }
+
+        @SuppressWarnings("unchecked")
+        private T cast(Object value) {
+            return (T) value;
+        }
+    }
+}
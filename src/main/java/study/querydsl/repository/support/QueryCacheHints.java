@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.annotations.QueryHints;
+
+/*
+ * Querydsl 쿼리에 Hibernate 쿼리 캐시 힌트를 켠다. (opt-in)
+ *
+ * 쿼리 캐시는 결과 엔티티의 id 만 저장하므로 결과 엔티티가 2차 캐시 대상(Team)일 때만 효과가 있다.
+ * 쿼리가 참조하는 테이블이 변경되면 (벌크 update/delete 포함) Hibernate 가 타임스탬프 비교로 무효화한다.
+ * */
+public final class QueryCacheHints {
+
+    private QueryCacheHints() {
+    }
+
+    public static <T> JPAQuery<T> cacheable(JPAQuery<T> query) {
+        return query.setHint(QueryHints.CACHEABLE, true);
+    }
+
+    public static <T> JPAQuery<T> cacheable(JPAQuery<T> query, String region) {
+        return query
+                .setHint(QueryHints.CACHEABLE, true)
+                .setHint(QueryHints.CACHE_REGION, region);
+    }
+}
@@ -0,0 +1,241 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Querydsl 페이징 지원
+ *
+ * 1. content 크기로 전체 개수를 알 수 있으면 count 쿼리를 생략한다. (첫 페이지가 limit 보다 작을때, 마지막 페이지)
+ * 2. count 쿼리는 content 쿼리에서 order by, fetch join, 건수에 영향이 없는 to-one left join 을 제거해서 만든다.
+ * 3. 필요하면 count 쿼리를 별도 EntityManager 로 content 쿼리와 동시에 실행한다.
+ * */
+@Slf4j
+@Component
+public class QuerydslPager implements DisposableBean {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final ExecutorService countExecutor;
+
+    public QuerydslPager(EntityManager em, EntityManagerFactory emf,
+                         @Value("${querydsl.paging.count-threads:4}") int countThreads) {
+        this.em = em;
+        this.emf = emf;
+        this.countExecutor = Executors.newFixedThreadPool(countThreads);
+    }
+
+    public <T> Page<T> page(JPAQuery<T> contentQuery, Pageable pageable) {
+        QueryMetadata countMetadata = countMetadata(contentQuery.getMetadata());
+
+        List<T> content = contentQuery
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        // content 크기로 전체 개수를 알 수 있으면 count 쿼리는 실행되지 않는다.
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(em, countMetadata));
+    }
+
+    /*
+    * count 쿼리를 content 쿼리와 동시에 실행한다.
+    * 주의) count 는 별도 EntityManager(커넥션)에서 실행되므로 현재 트랜잭션에서 커밋되지 않은 변경은 보이지 않는다.
+    * */
+    public <T> Page<T> pageWithParallelCount(JPAQuery<T> contentQuery, Pageable pageable) {
+        QueryMetadata countMetadata = countMetadata(contentQuery.getMetadata());
+        CompletableFuture<Long> count = CompletableFuture.supplyAsync(() -> {
+            EntityManager countEm = emf.createEntityManager();
+            try {
+                return count(countEm, countMetadata);
+            } finally {
+                countEm.close();
+            }
+        }, countExecutor);
+
+        List<T> content = contentQuery
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        Page<T> page = PageableExecutionUtils.getPage(content, pageable, count::join);
+        count.cancel(false); // count가 필요 없었던 경우 아직 시작 전이면 취소
+        return page;
+    }
+
+    public JPAQuery<?> countQuery(JPAQuery<?> contentQuery) {
+        return new JPAQuery<>(em, countMetadata(contentQuery.getMetadata()));
+    }
+
+    private long count(EntityManager entityManager, QueryMetadata countMetadata) {
+        JPAQuery<?> countQuery = new JPAQuery<>(entityManager, countMetadata);
+        if (!countMetadata.getGroupBy().isEmpty()) {
+            // JPQL 은 from 절 서브쿼리를 지원하지 않으므로 그룹 키만 조회해서 센다.
+            return countQuery.fetch().size();
+        }
+        Object count = countQuery.fetchOne();
+        return count == null ? 0L : ((Number) count).longValue();
+    }
+
+    QueryMetadata countMetadata(QueryMetadata source) {
+        QueryMetadata md = new DefaultQueryMetadata();
+
+        Set<Path<?>> referenced = referencedOutsideJoins(source);
+        for (JoinExpression join : source.getJoins()) {
+            if (isRemovableJoin(join, source, referenced)) {
+                log.debug("count 쿼리에서 join 제거 : {}", join);
+                continue;
+            }
+            md.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                md.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    md.addJoinFlag(flag);
+                }
+            }
+        }
+        for (QueryFlag flag : source.getFlags()) {
+            md.addFlag(flag);
+        }
+        if (source.getWhere() != null) {
+            md.addWhere(source.getWhere());
+        }
+
+        if (!source.getGroupBy().isEmpty()) {
+            // group by 결과의 row 수 = 그룹 수, 그룹 키만 조회한다.
+            for (Expression<?> key : source.getGroupBy()) {
+                md.addGroupBy(key);
+            }
+            if (source.getHaving() != null) {
+                md.addHaving(source.getHaving());
+            }
+            md.setProjection(source.getGroupBy().get(0));
+        } else if (source.isDistinct() && source.getProjection() != null) {
+            md.setProjection(ExpressionUtils.operation(Long.class, Ops.AggOps.COUNT_DISTINCT_AGG, source.getProjection()));
+        } else {
+            md.setProjection(Wildcard.count);
+        }
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            setParam(md, param.getKey(), param.getValue());
+        }
+        return md;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void setParam(QueryMetadata md, ParamExpression param, Object value) {
+        md.setParam(param, value);
+    }
+
+    // join 외의 절(where, group by, having, 다른 join 의 on)에서 참조하는 별칭
+    private Set<Path<?>> referencedOutsideJoins(QueryMetadata source) {
+        Set<Path<?>> roots = new HashSet<>();
+        PathReferenceCollector collector = PathReferenceCollector.DEFAULT;
+        collector.collect(source.getWhere(), roots);
+        collector.collect(source.getHaving(), roots);
+        for (Expression<?> key : source.getGroupBy()) {
+            collector.collect(key, roots);
+        }
+        for (JoinExpression join : source.getJoins()) {
+            collector.collect(joinedPath(join), roots); // member.team -> member 참조
+        }
+        return roots;
+    }
+
+    private boolean isRemovableJoin(JoinExpression join, QueryMetadata source, Set<Path<?>> referenced) {
+        if (join.getType() != JoinType.LEFTJOIN || !source.getGroupBy().isEmpty() || source.isDistinct()) {
+            return false;
+        }
+        Path<?> association = joinedPath(join);
+        Path<?> alias = joinAlias(join);
+        if (association == null || alias == null || referenced.contains(alias)) {
+            return false;
+        }
+        for (JoinExpression other : source.getJoins()) {
+            if (other != join && other.getCondition() != null) {
+                Set<Path<?>> roots = new HashSet<>();
+                PathReferenceCollector.DEFAULT.collect(other.getCondition(), roots);
+                if (roots.contains(alias)) {
+                    return false;
+                }
+            }
+        }
+        return isToOne(association);
+    }
+
+    // left join 이 to-one 연관관계면 루트 row 수가 변하지 않는다.
+    private boolean isToOne(Path<?> association) {
+        Path<?> owner = association.getMetadata().getParent();
+        if (owner == null) {
+            return false;
+        }
+        try {
+            ManagedType<?> ownerType = emf.getMetamodel().managedType(owner.getType());
+            Attribute<?, ?> attribute = ownerType.getAttribute(association.getMetadata().getName());
+            Attribute.PersistentAttributeType type = attribute.getPersistentAttributeType();
+            return type == Attribute.PersistentAttributeType.MANY_TO_ONE
+                    || type == Attribute.PersistentAttributeType.ONE_TO_ONE;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // leftJoin(member.team, team) -> member.team
+    private Path<?> joinedPath(JoinExpression join) {
+        if (isAlias(join.getTarget())) {
+            Expression<?> arg = ((Operation<?>) join.getTarget()).getArg(0);
+            return arg instanceof Path ? (Path<?>) arg : null;
+        }
+        return null;
+    }
+
+    // leftJoin(member.team, team) -> team
+    private Path<?> joinAlias(JoinExpression join) {
+        if (isAlias(join.getTarget())) {
+            Expression<?> arg = ((Operation<?>) join.getTarget()).getArg(1);
+            return arg instanceof Path ? (Path<?>) arg : null;
+        }
+        return null;
+    }
+
+    private boolean isAlias(Expression<?> target) {
+        return target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS;
+    }
+
+    @Override
+    public void destroy() {
+        countExecutor.shutdownNow();
+    }
+}
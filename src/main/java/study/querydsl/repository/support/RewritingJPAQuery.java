@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import study.querydsl.repository.support.SubqueryRewriter.Rewrite;
+
+import javax.persistence.EntityManager;
+import java.util.Set;
+
+/*
+ * JPQL 로 직렬화할때 서브쿼리를 재작성하는 JPAQuery (SubqueryRewriter)
+ * 메타데이터는 그대로 두고 직렬화 결과만 바뀌므로 빌더 체인, select(...), 메트릭 태그(원래 모양)는 영향이 없다.
+ * SCALAR_PRECOMPUTE 는 직렬화마다 집계 SQL 을 실행한다. (toString, fetchResults 의 count / 목록 각각)
+ * */
+public class RewritingJPAQuery<T> extends JPAQuery<T> {
+
+    private final SubqueryRewriter rewriter;
+    private final Set<Rewrite> rewrites;
+
+    public RewritingJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata,
+                             SubqueryRewriter rewriter, Set<Rewrite> rewrites) {
+        super(em, templates, metadata);
+        this.rewriter = rewriter;
+        this.rewrites = rewrites;
+    }
+
+    // 같은 쿼리를 다른 재작성으로 실행 (계획 / 시간 비교)
+    public RewritingJPAQuery<T> rewriting(Set<Rewrite> rewrites) {
+        return copy(entityManager, getMetadata().clone(), rewrites);
+    }
+
+    @Override
+    public RewritingJPAQuery<T> clone(EntityManager entityManager) {
+        return copy(entityManager, getMetadata().clone(), rewrites);
+    }
+
+    // 하위 클래스(MeteredJPAQuery)는 자기 타입으로 복사한다.
+    protected RewritingJPAQuery<T> copy(EntityManager entityManager, QueryMetadata metadata, Set<Rewrite> rewrites) {
+        return new RewritingJPAQuery<>(entityManager, getTemplates(), metadata, rewriter, rewrites);
+    }
+
+    @Override
+    protected JPQLSerializer serialize(boolean forCount, boolean validate) {
+        if (rewrites.isEmpty()) {
+            return super.serialize(forCount, validate);
+        }
+        if (validate && getMetadata().getJoins().isEmpty()) {
+            throw new IllegalArgumentException("No sources given");
+        }
+        JPQLSerializer serializer = createSerializer();
+        serializer.serialize(rewriter.rewrite(getMetadata(), rewrites), forCount, null);
+        return serializer;
+    }
+
+    protected SubqueryRewriter rewriter() {
+        return rewriter;
+    }
+
+    protected Set<Rewrite> rewrites() {
+        return rewrites;
+    }
+}
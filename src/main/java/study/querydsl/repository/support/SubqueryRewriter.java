@@ -0,0 +1,289 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.support.ReplaceVisitor;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.SubQueryExpressionImpl;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * 서브쿼리 재작성 (Querydsl 메타데이터 -> 재작성 -> JPQL 직렬화)
+ *
+ * SCALAR_PRECOMPUTE : 바깥 쿼리를 참조하지 않는 집계 서브쿼리를 먼저 한번 실행하고 결과 값으로 바꾼다.
+ *                     where age = (select max(age) from Member) -> where age = 40
+ *                     (값은 재작성 시점에 별도 SQL 로 조회한다.)
+ * IN_TO_EXISTS      : x in (select y from ... where c) -> exists (select 1 from ... where c and y = x)
+ *                     DB 가 semi-join 으로 실행할 수 있게 한다. (not in 은 null 처리가 달라서 바꾸지 않는다.)
+ *
+ * JPQL 은 from 절 서브쿼리(derived table)를 지원하지 않으므로 join 으로 바꾸는 재작성은 없다.
+ * 기본값은 querydsl.subquery-rewrite (비어 있으면 재작성하지 않음)이고, JPAQueryFactory 빈의 query() 가 만드는
+ * RewritingJPAQuery 가 직렬화할때 적용한다. rewrite(query, rewrites) 로 호출마다 지정해서 계획 / 시간을 비교할 수 있다.
+ * */
+@Slf4j
+@Component
+public class SubqueryRewriter {
+
+    public enum Rewrite {
+        SCALAR_PRECOMPUTE,
+        IN_TO_EXISTS
+    }
+
+    private final EntityManager em;
+    private final Set<Rewrite> defaults;
+
+    public SubqueryRewriter(EntityManager em, @Value("${querydsl.subquery-rewrite:}") Set<Rewrite> defaults) {
+        this.em = em;
+        this.defaults = defaults.isEmpty() ? EnumSet.noneOf(Rewrite.class) : EnumSet.copyOf(defaults);
+    }
+
+    public Set<Rewrite> defaults() {
+        return defaults;
+    }
+
+    public <T> JPAQuery<T> rewrite(JPAQuery<T> query) {
+        return rewrite(query, defaults);
+    }
+
+    // 원래 쿼리 타입(MeteredJPAQuery) / 템플릿을 유지한 복사본. 재작성은 직렬화할때 한다.
+    public <T> JPAQuery<T> rewrite(JPAQuery<T> query, Set<Rewrite> rewrites) {
+        if (query instanceof RewritingJPAQuery) {
+            return ((RewritingJPAQuery<T>) query).rewriting(rewrites);
+        }
+        if (rewrites.isEmpty()) {
+            return query;
+        }
+        return new RewritingJPAQuery<>(em, JPAProvider.getTemplates(em), query.getMetadata().clone(), this, rewrites);
+    }
+
+    public QueryMetadata rewrite(QueryMetadata source, Set<Rewrite> rewrites) {
+        if (rewrites.isEmpty()) {
+            return source;
+        }
+        return rewrite(source, new Rewriter(rewrites, source.getParams()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private QueryMetadata rewrite(QueryMetadata source, Rewriter rewriter) {
+        QueryMetadata md = new DefaultQueryMetadata();
+        for (JoinExpression join : source.getJoins()) {
+            md.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                md.addJoinCondition((Predicate) join.getCondition().accept(rewriter, null));
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                md.addJoinFlag(flag);
+            }
+        }
+        for (QueryFlag flag : source.getFlags()) {
+            md.addFlag(flag);
+        }
+        if (source.getWhere() != null) {
+            md.addWhere((Predicate) source.getWhere().accept(rewriter, null));
+        }
+        for (Expression<?> key : source.getGroupBy()) {
+            md.addGroupBy(key);
+        }
+        if (source.getHaving() != null) {
+            md.addHaving((Predicate) source.getHaving().accept(rewriter, null));
+        }
+        for (OrderSpecifier<?> order : source.getOrderBy()) {
+            md.addOrderBy(order);
+        }
+        if (source.getProjection() != null) {
+            md.setProjection(rewriter.projection(source.getProjection()));
+        }
+        md.setModifiers(source.getModifiers());
+        md.setDistinct(source.isDistinct());
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            md.setParam((ParamExpression) param.getKey(), param.getValue());
+        }
+        return md;
+    }
+
+    private final class Rewriter extends ReplaceVisitor<Void> {
+
+        private final Set<Rewrite> rewrites;
+        private final Map<ParamExpression<?>, Object> params;
+
+        private Rewriter(Set<Rewrite> rewrites, Map<ParamExpression<?>, Object> params) {
+            this.rewrites = rewrites;
+            this.params = params;
+        }
+
+        @Override
+        public Expression<?> visit(Operation<?> expr, Void context) {
+            if (rewrites.contains(Rewrite.IN_TO_EXISTS)
+                    && expr.getOperator() == Ops.IN
+                    && expr.getArg(1) instanceof SubQueryExpression) {
+                QueryMetadata sub = ((SubQueryExpression<?>) expr.getArg(1)).getMetadata();
+                if (isPlainSelect(sub)) {
+                    return exists(expr.getArg(0), sub).accept(this, context); // 서브쿼리 안쪽도 재작성
+                }
+            }
+            // in / not in 의 오른쪽은 값 하나로 바꾸면 "x in 40" 이 되어 JPQL 문법 오류다. (서브쿼리 안쪽만 재작성)
+            if ((expr.getOperator() == Ops.IN || expr.getOperator() == Ops.NOT_IN)
+                    && expr.getArg(1) instanceof SubQueryExpression) {
+                Expression<?> left = expr.getArg(0).accept(this, context);
+                Expression<?> right = super.visit((SubQueryExpression<?>) expr.getArg(1), context);
+                if (left.equals(expr.getArg(0)) && right.equals(expr.getArg(1))) {
+                    return expr;
+                }
+                return ExpressionUtils.operation(expr.getType(), expr.getOperator(), left, right);
+            }
+            return super.visit(expr, context);
+        }
+
+        @Override
+        public Expression<?> visit(SubQueryExpression<?> expr, Void context) {
+            if (rewrites.contains(Rewrite.SCALAR_PRECOMPUTE) && isUncorrelatedAggregate(expr)) {
+                return literal(precompute(expr.getMetadata()), expr.getType());
+            }
+            return super.visit(expr, context);
+        }
+
+        // Tuple / DTO 는 원래 FactoryExpression 으로 결과를 만들어서 tuple.get(원래 표현식) 이 그대로 동작하게 한다.
+        private Expression<?> projection(Expression<?> projection) {
+            if (!(projection instanceof FactoryExpression)) {
+                return projection.accept(this, null);
+            }
+            FactoryExpression<?> factory = (FactoryExpression<?>) projection;
+            List<Expression<?>> args = new ArrayList<>(factory.getArgs().size());
+            for (Expression<?> arg : factory.getArgs()) {
+                args.add(arg.accept(this, null));
+            }
+            return args.equals(factory.getArgs()) ? factory : new RewrittenProjection<>(factory, args);
+        }
+
+        private Expression<?> exists(Expression<?> left, QueryMetadata sub) {
+            QueryMetadata md = sub.clone();
+            Expression<?> selected = sub.getProjection();
+            md.setProjection(Expressions.ONE);
+            md.setDistinct(false);
+            md.addWhere(ExpressionUtils.predicate(Ops.EQ, selected, left));
+            return ExpressionUtils.predicate(Ops.EXISTS, new SubQueryExpressionImpl<>(Integer.class, md));
+        }
+
+        private Object precompute(QueryMetadata sub) {
+            QueryMetadata md = sub.clone();
+            for (Map.Entry<ParamExpression<?>, Object> param : params.entrySet()) {
+                setParam(md, param.getKey(), param.getValue());
+            }
+            Object value = new JPAQuery<>(em, md).fetchOne();
+            log.debug("scalar subquery precomputed : {} -> {}", sub, value);
+            return value;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void setParam(QueryMetadata md, ParamExpression param, Object value) {
+        md.setParam(param, value);
+    }
+
+    private static boolean isPlainSelect(QueryMetadata sub) {
+        return sub.getProjection() != null
+                && !(sub.getProjection() instanceof FactoryExpression)
+                && sub.getGroupBy().isEmpty()
+                && sub.getHaving() == null
+                && sub.getModifiers().getLimit() == null
+                && sub.getModifiers().getOffset() == null;
+    }
+
+    // group by 없는 집계 + 서브쿼리 안에서 선언한 별칭만 참조
+    private static boolean isUncorrelatedAggregate(SubQueryExpression<?> expr) {
+        QueryMetadata md = expr.getMetadata();
+        Expression<?> projection = md.getProjection();
+        // 숫자 서브쿼리의 projection 은 NumberConversion(결과 타입 변환)으로 감싸져 있다.
+        if (projection instanceof FactoryExpression && ((FactoryExpression<?>) projection).getArgs().size() == 1) {
+            projection = ((FactoryExpression<?>) projection).getArgs().get(0);
+        }
+        if (!(projection instanceof Operation) || !md.getGroupBy().isEmpty()
+                || !(((Operation<?>) projection).getOperator() instanceof Ops.AggOps)) {
+            return false;
+        }
+        Set<Path<?>> declared = new HashSet<>();
+        for (JoinExpression join : md.getJoins()) {
+            Expression<?> target = join.getTarget();
+            if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+                target = ((Operation<?>) target).getArg(1);
+            }
+            if (target instanceof Path) {
+                declared.add(((Path<?>) target).getRoot());
+            }
+        }
+        Set<Path<?>> referenced = new HashSet<>();
+        PathReferenceCollector.DEFAULT.collect(expr, referenced);
+        return declared.containsAll(referenced);
+    }
+
+    /*
+     * 숫자는 JPQL 리터럴로 넣는다.
+     * avg(Double) 를 int 경로와 비교할때 파라미터로 바인딩하면 Hibernate 가 타입 불일치로 거부한다.
+     * */
+    private static Expression<?> literal(Object value, Class<?> type) {
+        if (value == null) {
+            return Expressions.nullExpression(type);
+        }
+        if (value instanceof Number) {
+            return Expressions.template(type, new BigDecimal(value.toString()).toPlainString());
+        }
+        return Expressions.constant(value);
+    }
+
+    private static final class RewrittenProjection<T> extends FactoryExpressionBase<T> {
+
+        private final FactoryExpression<T> original;
+        private final List<Expression<?>> args;
+
+        @SuppressWarnings("unchecked")
+        private RewrittenProjection(FactoryExpression<?> original, List<Expression<?>> args) {
+            super((Class<? extends T>) original.getType());
+            this.original = (FactoryExpression<T>) original;
+            this.args = Collections.unmodifiableList(args);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public T newInstance(Object... values) {
+            return original.newInstance(values);
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+}
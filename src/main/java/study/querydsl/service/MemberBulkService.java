@@ -0,0 +1,192 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.AggregateResultCache;
+import study.querydsl.statistics.TeamStatisticsReconciler;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.entity.QMember.member;
+
+/*
+ * 회원 벌크 연산
+ *
+ * update / delete 쿼리를 chunkSize 개 id 단위(chunk)로 나눠 실행해서 락을 짧게 유지한다.
+ * chunk 마다 트랜잭션을 사용하고, 호출한 쪽에 트랜잭션이 있으면 그 트랜잭션에 참여한다.
+ * 벌크 연산은 영속성 컨텍스트를 거치지 않으므로, 전체 clear 대신 영향받은 Member 엔티티만 refresh / detach 한다.
+ * */
+@Slf4j
+@Service
+public class MemberBulkService {
+
+    public enum Reconcile {
+        REFRESH, // DB 값으로 다시 읽는다.
+        EVICT    // 영속성 컨텍스트에서 분리한다.
+    }
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final AggregateResultCache aggregateResultCache;
+    private final TeamStatisticsReconciler teamStatisticsReconciler;
+
+    public MemberBulkService(EntityManager em, JPAQueryFactory queryFactory, TransactionTemplate transactionTemplate,
+                             AggregateResultCache aggregateResultCache,
+                             TeamStatisticsReconciler teamStatisticsReconciler) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.transactionTemplate = transactionTemplate;
+        this.aggregateResultCache = aggregateResultCache;
+        this.teamStatisticsReconciler = teamStatisticsReconciler;
+    }
+
+    /*
+    * 팀 X 에 속한 모든 회원 나이 += delta
+    * */
+    public BulkResult addAge(Long teamId, int delta, int chunkSize, Reconcile reconcile) {
+        return forEachChunk(teamId, chunkSize, (from, to) -> {
+            long affected = queryFactory
+                    .update(member)
+                    .set(member.age, member.age.add(delta))
+                    .where(member.team.id.eq(teamId),
+                            member.id.between(from, to))
+                    .execute();
+            reconcile(teamId, from, to, reconcile);
+            return affected;
+        });
+    }
+
+    public BulkResult deleteByTeam(Long teamId, int chunkSize) {
+        return forEachChunk(teamId, chunkSize, (from, to) -> {
+            // 삭제된 엔티티는 refresh 할 수 없으므로 분리한다.
+            reconcile(teamId, from, to, Reconcile.EVICT);
+            long affected = queryFactory
+                    .delete(member)
+                    .where(member.team.id.eq(teamId),
+                            member.id.between(from, to))
+                    .execute();
+            refreshTeam(teamId); // team.members 컬렉션에 삭제된 회원이 남지 않게
+            return affected;
+        });
+    }
+
+    /*
+    * 실제 id 로 페이지를 나눈다. (id 가 드문드문해도 chunk 마다 chunkSize 건)
+    * chunk 트랜잭션 안에서 다음 chunkSize 개 id 를 조회하고 (where team_id = ? and id > 마지막 id order by id)
+    * 첫 id ~ 마지막 id 구간만 update / delete 한다.
+    * */
+    private BulkResult forEachChunk(Long teamId, int chunkSize, ChunkOperation operation) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive : " + chunkSize);
+        }
+        BulkResult result = new BulkResult();
+
+        Long lastId = null;
+        while (true) {
+            long start = System.nanoTime();
+            Long after = lastId;
+            IdRange range = transactionTemplate.execute(status -> {
+                em.flush(); // 아직 반영되지 않은 변경을 먼저 DB 에 반영
+                List<Long> ids = queryFactory
+                        .select(member.id)
+                        .from(member)
+                        .where(member.team.id.eq(teamId),
+                                after == null ? null : member.id.gt(after))
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .fetch();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                aggregateResultCache.changed(Member.class); // 벌크 연산은 엔티티 이벤트가 발생하지 않는다.
+                long from = ids.get(0);
+                long to = ids.get(ids.size() - 1);
+                return new IdRange(from, to, ids.size(), operation.execute(from, to));
+            });
+            if (range == null) {
+                break;
+            }
+            long elapsed = System.nanoTime() - start;
+            result.add(range.from, range.to, range.affected, elapsed);
+            log.debug("bulk chunk teamId={} id=[{}, {}] affected={} elapsed={}ns",
+                    teamId, range.from, range.to, range.affected, elapsed);
+            if (range.size < chunkSize) {
+                break; // 마지막 페이지
+            }
+            lastId = range.to;
+        }
+        teamStatisticsReconciler.rebuildTeam(teamId); // 벌크 연산은 엔티티 리스너를 거치지 않는다.
+        return result;
+    }
+
+    // 영속성 컨텍스트에 있는 엔티티 중 해당 chunk 에 속한 회원만 정리
+    private void reconcile(Long teamId, long from, long to, Reconcile reconcile) {
+        for (Member m : managedMembers(teamId, from, to)) {
+            if (reconcile == Reconcile.REFRESH) {
+                em.refresh(m);
+            } else {
+                em.detach(m);
+            }
+        }
+    }
+
+    private List<Member> managedMembers(Long teamId, long from, long to) {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+
+        List<Member> result = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (!(entry.getKey() instanceof Member)) {
+                continue;
+            }
+            Member m = (Member) entry.getKey();
+            if (m.getId() == null || m.getId() < from || m.getId() > to || m.getTeam() == null) {
+                continue;
+            }
+            if (teamId.equals(util.getIdentifier(m.getTeam()))) {
+                result.add(m);
+            }
+        }
+        return result;
+    }
+
+    private void refreshTeam(Long teamId) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Team && teamId.equals(((Team) entry.getKey()).getId())) {
+                em.refresh(entry.getKey());
+            }
+        }
+    }
+
+    private static final class IdRange {
+        private final long from;
+        private final long to;
+        private final int size;
+        private final long affected;
+
+        private IdRange(long from, long to, int size, long affected) {
+            this.from = from;
+            this.to = to;
+            this.size = size;
+            this.affected = affected;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkOperation {
+        long execute(long fromId, long toId);
+    }
+}
@@ -0,0 +1,245 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * 회원 내보내기 (JSON 배열 / CSV)
+ *
+ * forward-only 커서(iterate)에서 한 row 씩 읽어서 바로 출력 스트림에 쓴다. (중간 List 없음)
+ * DTO 로 조회하므로 영속성 컨텍스트에 엔티티가 쌓이지 않고, 메모리는 chunkSize 만큼의 출력 버퍼로 제한된다.
+ * chunkSize 건마다 flush 해서 클라이언트로 내보낸다.
+ *
+ * 배압 : 출력은 블로킹 쓰기라서 클라이언트가 느리면 커서 읽기도 같이 멈춘다. (버퍼가 늘어나지 않음)
+ *        대신 커서가 오래 열려 있지 않도록 timeoutSeconds 가 지나면 중단하고 커서를 닫는다.
+ * 타임아웃 : 쓰기 중에 멈춰 있으면 이 스레드는 시간을 확인할 수 없으므로 두 곳에서 끊는다.
+ *           - watchdog 스레드가 기한에 실행 중인 Statement 를 취소(Session#cancelQuery)하고 중단 표시를 남긴다.
+ *             쓰기가 끝나면 바로 다음 row 에서 중단하고 커서를 닫는다. (커서는 읽는 스레드에서만 닫는다.)
+ *           - 막혀 있는 쓰기는 spring.mvc.async.request-timeout(= timeoutSeconds)이 지나면 컨테이너가 응답을 닫아서 풀린다.
+ * */
+@Slf4j
+@Service
+public class MemberExportService implements DisposableBean {
+
+    public enum Format {
+        JSON, CSV
+    }
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long timeoutNanos;
+    private final ScheduledExecutorService watchdog;
+
+    public MemberExportService(JPAQueryFactory queryFactory, EntityManager em, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${querydsl.export.chunk-size:1000}") int chunkSize,
+                               @Value("${querydsl.export.timeout-seconds:300}") long timeoutSeconds) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.chunkSize = chunkSize;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-export-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+    * 내보낸 row 수를 반환한다.
+    * out 은 닫지 않는다.
+    * */
+    public long export(MemberSearchCondition condition, Format format, OutputStream out) {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Long count = transactionTemplate.execute(status -> {
+            Session session = em.unwrap(SessionImplementor.class); // 공유 EntityManager 프록시가 아닌 이 트랜잭션의 세션
+            ScheduledFuture<?> timer = watchdog.schedule(() -> {
+                timedOut.set(true);
+                session.cancelQuery();
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            try (CloseableIterator<MemberDto> rows = queryFactory
+                    .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()))
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.FETCH_SIZE, chunkSize)
+                    .iterate();
+                 RowWriter writer = format == Format.JSON ? new JsonRowWriter(out) : new CsvRowWriter(out)) {
+                long written = 0;
+                while (rows.hasNext()) {
+                    if (timedOut.get()) {
+                        throw new IllegalStateException("export timed out after " + written + " rows");
+                    }
+                    writer.write(rows.next());
+                    if (++written % chunkSize == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.finish();
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // 클라이언트 연결 끊김 -> 롤백, 커서 닫힘
+            } catch (PersistenceException e) {
+                if (timedOut.get()) {
+                    throw new IllegalStateException("export timed out", e); // watchdog 가 Statement 를 취소함
+                }
+                throw e;
+            } finally {
+                timer.cancel(false);
+            }
+        });
+        log.debug("export format={} rows={}", format, count);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private interface RowWriter extends AutoCloseable {
+        void write(MemberDto row) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class JsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private JsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.writeStartArray();
+        }
+
+        @Override
+        public void write(MemberDto row) throws IOException {
+            generator.writeObject(row);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeEndArray();
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write("username,age\n");
+        }
+
+        @Override
+        public void write(MemberDto row) throws IOException {
+            writer.write(escape(row.getUsername()));
+            writer.write(',');
+            writer.write(Integer.toString(row.getAge()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            // out 은 호출한 쪽이 닫는다.
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package study.querydsl.statistics;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Objects;
+
+/*
+ * Member insert / update / delete 이벤트(Hibernate) -> TeamStatistics 증분 반영
+ *
+ * insert : 새 팀에 +1
+ * delete : 삭제 시점 팀에서 -1
+ * update : 팀(changeTeam) 이나 나이가 바뀌었으면 이전 값 -1, 새 값 +1
+ *
+ * 이전 값은 영속성 컨텍스트가 dirty checking 을 위해 가지고 있는 로딩 시점 상태(EntityEntry#getLoadedState)를 쓴다.
+ * (엔티티에 통계용 필드를 두지 않는다.)
+ * 주의) JPQL 벌크 연산과 네이티브 쿼리는 이벤트가 없다. 준영속 엔티티를 Session#update 로 다시 붙이면 이전 상태가 없다.
+ *      -> TeamStatisticsReconciler
+ * */
+@Component
+public class MemberStatisticsListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final TeamStatistics teamStatistics;
+
+    public MemberStatisticsListener(EntityManagerFactory emf, TeamStatistics teamStatistics) {
+        this.emf = emf;
+        this.teamStatistics = teamStatistics;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            teamStatistics.add(teamId(event.getPersister(), event.getState()), age(event.getPersister(), event.getState()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Long teamId = teamId(persister, event.getState());
+        int age = age(persister, event.getState());
+        Object[] oldState = event.getOldState();
+        if (oldState != null) {
+            Long oldTeamId = teamId(persister, oldState);
+            int oldAge = age(persister, oldState);
+            if (Objects.equals(teamId, oldTeamId) && age == oldAge) {
+                return; // 통계와 관계없는 변경 (username)
+            }
+            teamStatistics.remove(oldTeamId, oldAge);
+        }
+        teamStatistics.add(teamId, age);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            teamStatistics.remove(teamId(event.getPersister(), event.getDeletedState()),
+                    age(event.getPersister(), event.getDeletedState()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false; // 커밋 후 반영은 TeamStatistics 가 트랜잭션 동기화로 처리한다.
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        return teamId((Team) state[persister.getEntityMetamodel().getPropertyIndex("team")]);
+    }
+
+    // 프록시를 초기화하지 않고 id 를 얻는다.
+    private static Long teamId(Team team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+}
@@ -0,0 +1,132 @@
+package study.querydsl.statistics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.TeamMemberStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * 팀별 회원 통계 (회원 수, 나이 합계 / 최소 / 최대) - 메모리에서 증분 유지
+ *
+ * groupBy 집계(O(회원 수))를 팀 수만큼의 조회(O(팀 수))로 바꾼다.
+ * 팀마다 나이별 회원 수(TreeMap)를 가지고 있어서 삭제 / 변경 후에도 min, max 를 다시 계산하지 않는다.
+ *
+ * 변경분은 트랜잭션이 커밋된 뒤에 반영하고, 롤백되면 버린다.
+ * 처음 값과 보정은 TeamStatisticsReconciler 가 DB 에서 다시 만든다.
+ * */
+@Component
+public class TeamStatistics {
+
+    private volatile Map<Long, TeamAges> teams = new ConcurrentHashMap<>();
+
+    public Optional<TeamMemberStats> get(Long teamId) {
+        TeamAges ages = teams.get(teamId);
+        return ages == null ? Optional.empty() : Optional.ofNullable(ages.snapshot(teamId));
+    }
+
+    public List<TeamMemberStats> getAll() {
+        List<TeamMemberStats> result = new ArrayList<>();
+        teams.forEach((teamId, ages) -> {
+            TeamMemberStats stats = ages.snapshot(teamId);
+            if (stats != null) {
+                result.add(stats);
+            }
+        });
+        result.sort(Comparator.comparing(TeamMemberStats::getTeamId));
+        return result;
+    }
+
+    void add(Long teamId, int age) {
+        delta(teamId, age, 1);
+    }
+
+    void remove(Long teamId, int age) {
+        delta(teamId, age, -1);
+    }
+
+    // 나이별 회원 수 (teamId -> age -> count) 로 전체를 교체한다.
+    void replaceAll(Map<Long, Map<Integer, Long>> counts) {
+        Map<Long, TeamAges> rebuilt = new ConcurrentHashMap<>();
+        counts.forEach((teamId, ages) -> rebuilt.put(teamId, TeamAges.of(ages)));
+        teams = rebuilt;
+    }
+
+    void replace(Long teamId, Map<Integer, Long> ages) {
+        teams.put(teamId, TeamAges.of(ages));
+    }
+
+    private void delta(Long teamId, int age, int diff) {
+        if (teamId == null) {
+            return; // 팀이 없는 회원
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(teamId, age, diff);
+            return;
+        }
+        pending().add(new long[]{teamId, age, diff});
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<long[]> pending() {
+        List<long[]> pending = (List<long[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<long[]> deltas = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, deltas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (long[] d : deltas) {
+                        apply(d[0], (int) d[1], (int) d[2]);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatistics.this);
+                }
+            });
+            pending = deltas;
+        }
+        return pending;
+    }
+
+    private void apply(long teamId, int age, int diff) {
+        teams.computeIfAbsent(teamId, id -> new TeamAges()).apply(age, diff);
+    }
+
+    private static final class TeamAges {
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+        private long count;
+        private long sum;
+
+        private static TeamAges of(Map<Integer, Long> ages) {
+            TeamAges teamAges = new TeamAges();
+            ages.forEach((age, count) -> teamAges.apply(age, count));
+            return teamAges;
+        }
+
+        private synchronized void apply(int age, long diff) {
+            long remaining = ages.merge(age, diff, Long::sum);
+            if (remaining == 0) {
+                ages.remove(age);
+            }
+            count += diff;
+            sum += age * diff;
+        }
+
+        private synchronized TeamMemberStats snapshot(Long teamId) {
+            if (ages.isEmpty()) {
+                return null;
+            }
+            return new TeamMemberStats(teamId, count, sum, ages.firstKey(), ages.lastKey());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package study.querydsl.statistics;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamMemberStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+
+/*
+ * TeamStatistics 를 DB 에서 다시 만들고(rebuild) 검증(verify)한다.
+ *
+ * - 시작 시 한번 rebuild
+ * - querydsl.team-stats.verify-millis 마다 verify, 어긋난 팀이 있으면 rebuild
+ *   (벌크 연산, 네이티브 쿼리, rebuild 와 동시에 커밋된 변경으로 생긴 차이를 보정한다.)
+ * */
+@Slf4j
+@Component
+public class TeamStatisticsReconciler {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamStatistics teamStatistics;
+    private final TransactionTemplate transactionTemplate;
+
+    public TeamStatisticsReconciler(JPAQueryFactory queryFactory, TeamStatistics teamStatistics,
+                                    PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.teamStatistics = teamStatistics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Map<Integer, Long>> counts = transactionTemplate.execute(status -> load(null));
+        teamStatistics.replaceAll(counts);
+        log.info("team statistics rebuilt teams={} elapsed={}ms", counts.size(), System.currentTimeMillis() - start);
+    }
+
+    /*
+     * 한 팀만 다시 만든다. (벌크 연산 이후)
+     * 트랜잭션 안이면 커밋된 뒤에 실행한다.
+     * afterCommit 안에서도 동기화는 활성 상태이므로 rebuildTeam 을 다시 부르지 않고 바로 읽는다.
+     * (거기서 등록한 동기화는 afterCommit 이 호출되지 않는다.)
+     * */
+    public void rebuildTeam(Long teamId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doRebuild(teamId);
+                }
+            });
+            return;
+        }
+        doRebuild(teamId);
+    }
+
+    private void doRebuild(Long teamId) {
+        Map<Long, Map<Integer, Long>> counts = transactionTemplate.execute(status -> load(teamId)); // REQUIRES_NEW
+        teamStatistics.replace(teamId, counts.getOrDefault(teamId, new HashMap<>()));
+    }
+
+    /*
+     * 메모리 통계와 DB 집계가 다른 팀 id 목록 (같으면 빈 목록)
+     * */
+    public List<Long> verify() {
+        Map<Long, TeamMemberStats> expected = new HashMap<>();
+        for (TeamMemberStats stats : transactionTemplate.execute(status -> aggregate())) {
+            expected.put(stats.getTeamId(), stats);
+        }
+        Map<Long, TeamMemberStats> actual = new HashMap<>();
+        for (TeamMemberStats stats : teamStatistics.getAll()) {
+            actual.put(stats.getTeamId(), stats);
+        }
+
+        Set<Long> teamIds = new HashSet<>(expected.keySet());
+        teamIds.addAll(actual.keySet());
+        List<Long> mismatched = new ArrayList<>();
+        for (Long teamId : teamIds) {
+            if (!Objects.equals(expected.get(teamId), actual.get(teamId))) {
+                mismatched.add(teamId);
+            }
+        }
+        return mismatched;
+    }
+
+    @Scheduled(initialDelayString = "${querydsl.team-stats.verify-millis:600000}",
+            fixedDelayString = "${querydsl.team-stats.verify-millis:600000}")
+    public void reconcile() {
+        List<Long> mismatched = verify();
+        if (!mismatched.isEmpty()) {
+            log.warn("team statistics mismatch teams={} -> rebuild", mismatched);
+            rebuild();
+        }
+    }
+
+    // teamId -> age -> 회원 수 (teamId 가 null 이면 전체 팀)
+    private Map<Long, Map<Integer, Long>> load(Long teamId) {
+        List<Tuple> rows = queryFactory
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .where(member.team.isNotNull(),
+                        teamId == null ? null : member.team.id.eq(teamId))
+                .groupBy(member.team.id, member.age)
+                .fetch();
+
+        Map<Long, Map<Integer, Long>> counts = new HashMap<>();
+        for (Tuple row : rows) {
+            counts.computeIfAbsent(row.get(member.team.id), id -> new HashMap<>())
+                    .put(row.get(member.age), row.get(member.count()));
+        }
+        return counts;
+    }
+
+    // 검증용 groupBy 집계 (TeamStatistics 가 대신하는 쿼리)
+    private List<TeamMemberStats> aggregate() {
+        List<Tuple> rows = queryFactory
+                .select(member.team.id,
+                        member.count(),
+                        member.age.sum(),
+                        member.age.min(),
+                        member.age.max())
+                .from(member)
+                .where(member.team.isNotNull())
+                .groupBy(member.team.id)
+                .fetch();
+
+        List<TeamMemberStats> result = new ArrayList<>();
+        for (Tuple row : rows) {
+            result.add(new TeamMemberStats(
+                    row.get(member.team.id),
+                    row.get(member.count()),
+                    row.get(2, Number.class).longValue(),
+                    row.get(member.age.min()),
+                    row.get(member.age.max())));
+        }
+        return result;
+    }
+}
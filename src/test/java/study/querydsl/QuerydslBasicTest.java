@@ -8,10 +8,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.monitor.ExplainPlan;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -24,6 +26,7 @@ import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.*;
 
 @SpringBootTest
+@ActiveProfiles("mem") // 인메모리 H2, 모든 테스트가 같은 설정 -> 스프링 컨텍스트 재사용
 @Transactional
 //@Commit
 public class QuerydslBasicTest {
@@ -258,6 +261,7 @@ public class QuerydslBasicTest {
     * 팀 A에 소속된 모든 회원 조인
     * */
     @Test
+    @ExplainPlan // 실행 계획 스냅샷 (src/test/resources/plans)
     public void join(){
         List<Member> result = queryFactory
                 .selectFrom(member)
@@ -276,6 +280,7 @@ public class QuerydslBasicTest {
     * 제약 : 외부 조인이 불가능 (LeftOut, RightOut Join)
     * */
     @Test
+    @ExplainPlan
     public void theta_join(){
         em.persist(new Member("teamA")); // 멤버이름을 teamA
         em.persist(new Member("teamB")); // 멤버이름을 teamB
@@ -297,6 +302,7 @@ public class QuerydslBasicTest {
     * JPQL : select m, t from Member m left join m.team t on t.name = 'teamA'
     * */
     @Test
+    @ExplainPlan
     public void join_on_filtering(){
         List<Tuple> result1 = queryFactory
                 .select(member, team) // Tuple로 나온이유는 select 타입이 여러개이기때문
@@ -326,6 +332,7 @@ public class QuerydslBasicTest {
     * 회원의 이름과 팀이림이 같은 대상을 외부 조인
     * */
     @Test
+    @ExplainPlan
     public void join_on_no_relation(){
         em.persist(new Member("teamA")); // 멤버이름을 teamA
         em.persist(new Member("teamB")); // 멤버이름을 teamB
@@ -349,6 +356,7 @@ public class QuerydslBasicTest {
     EntityManagerFactory emf;
 
     @Test
+    @ExplainPlan
     public void fetchJoinNo(){
         // 영속성 컨텍스트 초기화
         em.flush();
@@ -367,6 +375,7 @@ public class QuerydslBasicTest {
     * fetchJoin 적용
     * */
     @Test
+    @ExplainPlan
     public void fetchJoinUse(){
         // 영속성 컨텍스트 초기화
         em.flush();
@@ -9,9 +9,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
 import study.querydsl.dto.UserDto;
+import study.querydsl.dto.UserDtoProjection;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
@@ -26,6 +29,7 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 @SpringBootTest
+@ActiveProfiles("mem")
 @Transactional
 //@Commit
 public class QuerydslDtoTest {
@@ -141,4 +145,32 @@ public class QuerydslDtoTest {
             System.out.println("memberDto = " + memberDto);
         }
     }
+
+    // 4번 - 컴파일 시점에 생성된 프로젝션 (리플렉션 없이 생성자 / setter 직접 호출)
+    @Test
+    public void findDtoByDirectProjection() {
+        List<MemberDto> result = queryFactory
+                .select(new MemberDtoProjection(member.username, member.age))
+                .from(member)
+                .fetch();
+
+        for (MemberDto memberDto : result) {
+            System.out.println("memberDto = " + memberDto);
+        }
+        assertThat(result).extracting("username").containsExactly("member1", "member2", "member3", "member4");
+        assertThat(result).extracting("age").containsExactly(10, 20, 30, 40);
+    }
+
+    @Test
+    public void findUserDtoByDirectProjection() {
+        List<UserDto> result = queryFactory
+                .select(new UserDtoProjection(member.username, member.age))
+                .from(member)
+                .fetch();
+
+        for (UserDto userDto : result) {
+            System.out.println("userDto = " + userDto);
+        }
+        assertThat(result).extracting("name").containsExactly("member1", "member2", "member3", "member4");
+    }
 }
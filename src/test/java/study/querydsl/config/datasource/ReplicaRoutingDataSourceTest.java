@@ -0,0 +1,157 @@
+package study.querydsl.config.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * 인메모리 H2 두개를 primary / replica 로 사용한다.
+ * 각 DB 의 node 테이블에 자기 이름을 넣어두고 어느 DB 에서 조회됐는지 확인한다.
+ * */
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = h2("routing_primary");
+    DataSource replica = h2("routing_replica");
+
+    ReplicaRoutingDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate write;
+    TransactionTemplate read;
+
+    @BeforeEach
+    public void before() {
+        init(primary, "primary");
+        init(replica, "replica");
+        ReadYourWrites.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        ReadYourWrites.clear();
+    }
+
+    private void routing(List<DataSource> replicas, boolean readYourWrites) {
+        dataSource = new ReplicaRoutingDataSource(primary, replicas, 60_000, readYourWrites);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        write = new TransactionTemplate(transactionManager);
+        read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+    }
+
+    // 읽기 전용 트랜잭션은 replica
+    @Test
+    public void readOnlyTransactionUsesReplica() {
+        routing(Arrays.asList(replica), false);
+
+        assertThat(readNode()).isEqualTo("replica");
+        assertThat(writeNode()).isEqualTo("primary");
+        assertThat(node()).isEqualTo("primary"); // 트랜잭션 밖
+    }
+
+    // 쓰기는 primary
+    @Test
+    public void writesUsePrimary() {
+        routing(Arrays.asList(replica), false);
+
+        write.executeWithoutResult(status -> jdbcTemplate.update("update node set name = 'primary-updated'"));
+
+        assertThat(new JdbcTemplate(primary).queryForObject("select name from node", String.class))
+                .isEqualTo("primary-updated");
+        assertThat(new JdbcTemplate(replica).queryForObject("select name from node", String.class))
+                .isEqualTo("replica");
+    }
+
+    // 라운드 로빈
+    @Test
+    public void roundRobin() {
+        DataSource replica2 = h2("routing_replica2");
+        init(replica2, "replica2");
+        routing(Arrays.asList(replica, replica2), false);
+
+        String first = readNode();
+        String second = readNode();
+
+        assertThat(Arrays.asList(first, second)).containsExactlyInAnyOrder("replica", "replica2");
+    }
+
+    // 실패한 replica 는 제외
+    @Test
+    public void failedReplicaIsEjected() {
+        DataSource broken = new DriverManagerDataSource("jdbc:h2:mem:routing_broken;IFEXISTS=TRUE", "sa", "");
+        routing(Arrays.asList(broken, replica), false);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(readNode()).isEqualTo("replica");
+        }
+        assertThat(dataSource.getAvailableReplicas()).isEqualTo(1);
+    }
+
+    // 모든 replica 가 실패하면 primary
+    @Test
+    public void fallsBackToPrimaryWhenAllReplicasFail() {
+        DataSource broken = new DriverManagerDataSource("jdbc:h2:mem:routing_broken;IFEXISTS=TRUE", "sa", "");
+        routing(Arrays.asList(broken), false);
+
+        assertThat(readNode()).isEqualTo("primary");
+        assertThat(dataSource.getAvailableReplicas()).isEqualTo(0);
+    }
+
+    // 헬스체크
+    @Test
+    public void healthCheck() {
+        DataSource broken = new DriverManagerDataSource("jdbc:h2:mem:routing_broken;IFEXISTS=TRUE", "sa", "");
+        routing(Arrays.asList(broken, replica), false);
+
+        dataSource.checkReplicas();
+
+        assertThat(dataSource.getAvailableReplicas()).isEqualTo(1);
+    }
+
+    @Test
+    public void readYourWrites() {
+        routing(Arrays.asList(replica), true);
+        assertThat(readNode()).isEqualTo("replica");
+
+        write.executeWithoutResult(status -> jdbcTemplate.update("update node set name = 'primary-updated'"));
+
+        // 같은 요청(스레드)에서 쓰기 이후의 읽기는 primary
+        assertThat(readNode()).isEqualTo("primary-updated");
+
+        ReadYourWrites.clear(); // 요청 종료
+        assertThat(readNode()).isEqualTo("replica");
+    }
+
+    private String readNode() {
+        return read.execute(status -> node());
+    }
+
+    private String writeNode() {
+        return write.execute(status -> node());
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static void init(DataSource dataSource, String name) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists node");
+        jdbc.execute("create table node (name varchar(50))");
+        jdbc.update("insert into node values (?)", name);
+    }
+}
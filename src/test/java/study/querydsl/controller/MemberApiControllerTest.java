@@ -0,0 +1,97 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class MemberApiControllerTest {
+
+    @Autowired
+    WebApplicationContext context;
+
+    @Autowired
+    EntityManager em;
+
+    MockMvc mockMvc;
+
+    Team teamA;
+
+    @BeforeEach
+    public void before() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        teamA = new Team("apiTeamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("api" + i, 10 + i, teamA));
+        }
+        em.flush();
+    }
+
+    @Test
+    public void keysetPaging() throws Exception {
+        String cursor = mockMvc.perform(get("/api/members").param("teamName", "apiTeamA").param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].username").value("api0"))
+                .andExpect(jsonPath("$.content[0].teamName").value("apiTeamA"))
+                .andReturn().getResponse().getContentAsString()
+                .replaceAll(".*\"nextCursor\":\"(\\d+)\".*", "$1");
+
+        mockMvc.perform(get("/api/members").param("teamName", "apiTeamA").param("size", "3").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].username").value("api3"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    public void conditionalGet() throws Exception {
+        String etag = mockMvc.perform(get("/api/members").param("teamName", "apiTeamA"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/members").param("teamName", "apiTeamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // 회원이 변경되면 ETag 가 바뀐다.
+        em.persist(new Member("api5", 15, teamA));
+        em.flush();
+
+        String changed = mockMvc.perform(get("/api/members").param("teamName", "apiTeamA")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(6))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void unknownExportFormat() throws Exception {
+        mockMvc.perform(get("/api/members/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * 테스트에서 실행된 select 의 실행 계획 스냅샷 비교 (ExplainPlanExtension)
+ * */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(ExplainPlanExtension.class)
+public @interface ExplainPlan {
+}
@@ -0,0 +1,37 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 현재 스레드에서 실행된 select 를 값이 들어간 SQL 그대로 모은다. (EXPLAIN 은 바인딩 파라미터를 받지 않음)
+ * 테스트 클래스패스에만 있는 p6spy 리스너
+ * */
+@Component
+public class ExplainPlanCapture extends SimpleJdbcEventListener {
+
+    private final ThreadLocal<List<String>> captured = new ThreadLocal<>();
+
+    public void start() {
+        captured.set(new ArrayList<>());
+    }
+
+    public List<String> stop() {
+        List<String> statements = captured.get();
+        captured.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        List<String> statements = captured.get();
+        if (statements != null && e == null && SqlShape.isSelect(SqlShape.normalize(statementInformation.getSql()))) {
+            statements.add(IndexAdvisor.sqlWithValues(statementInformation)); // JPQL 주석의 ? 는 채우지 않는다.
+        }
+    }
+}
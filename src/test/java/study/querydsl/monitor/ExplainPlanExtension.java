@@ -0,0 +1,234 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * 실행 계획 회귀 테스트 (@ExplainPlan)
+ *
+ * 테스트에서 실행된 select 마다 H2 EXPLAIN 을 실행하고, 테이블 접근 방식만 남긴 스냅샷으로 정규화한다.
+ *   -- select member0_, team1_ from member member0_ left outer join team team1_ on ... where team1_.name=?
+ *   from member scan
+ *   left outer join team index primary_key
+ * 쿼리 키는 select 절 컬럼 목록 대신 "어느 테이블 컬럼을 읽는지" 만 남긴 구조다.
+ * (엔티티에 컬럼이 늘어도 키는 그대로, fetchJoin 이 빠지면 team1_ 이 사라져서 키가 바뀐다)
+ *
+ * src/test/resources/plans/{테스트 클래스}/{메서드}.plan 과 실행 순서대로 비교해서
+ * - 스냅샷 파일이 없거나
+ * - 스냅샷에 있던 쿼리가 실행되지 않았거나, 스냅샷에 없는 쿼리가 실행되었거나
+ * - 쿼리 구조(키)가 바뀌었거나
+ * - index -> scan 으로 바뀌거나
+ * - 조인 순서 / 종류 / 테이블이 바뀌면 실패한다.
+ * 그 밖의 변화(scan -> index, 인덱스 이름)는 허용한다.
+ * 스냅샷은 -Dplans.update=true 로 실행할 때만 만들거나 덮어쓴다. (의도한 변경이면 갱신해서 함께 커밋한다)
+ * */
+public class ExplainPlanExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final Path SNAPSHOT_DIR = Paths.get("src", "test", "resources", "plans");
+    private static final String STATEMENT_PREFIX = "-- ";
+    private static final Pattern TABLE_ACCESS = Pattern.compile(
+            "\\b(FROM|(?:(?:LEFT|RIGHT|FULL) OUTER |INNER |CROSS |NATURAL )?JOIN)\\s+\"?\\w+\"?\\.\"?(\\w+)\"?(?:\\s+\"?\\w+\"?)?\\s*/\\*\\s*(.*?)\\s*\\*/",
+            Pattern.DOTALL);
+    // 자동 생성 인덱스 이름의 번호 (PRIMARY_KEY_8, FK..._INDEX_8)
+    private static final Pattern SELECTED_ALIAS = Pattern.compile("\\b(\\w+)\\.\\w+");
+    private static final Pattern GENERATED_SUFFIX = Pattern.compile("(PRIMARY_KEY|INDEX)_[0-9A-F]+$");
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        capture(context).start();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws IOException {
+        List<String> statements = capture(context).stop();
+        if (context.getExecutionException().isPresent()) {
+            return;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(applicationContext(context).getBean(DataSource.class));
+        List<Statement> current = new ArrayList<>();
+        for (String sql : statements) {
+            current.add(new Statement(key(sql),
+                    normalize(String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class)))));
+        }
+
+        Path file = SNAPSHOT_DIR.resolve(context.getRequiredTestClass().getSimpleName())
+                .resolve(context.getRequiredTestMethod().getName() + ".plan");
+        if (Boolean.getBoolean("plans.update")) {
+            write(file, current);
+            return;
+        }
+        if (!Files.exists(file)) {
+            throw new AssertionError("실행 계획 스냅샷이 없습니다. -Dplans.update=true 로 만들어서 커밋하세요. (" + file + ")");
+        }
+        List<String> regressions = compare(read(file), current);
+        if (!regressions.isEmpty()) {
+            throw new AssertionError("실행 계획 회귀 (" + file + ", 의도한 변경이면 -Dplans.update=true)\n"
+                    + String.join("\n", regressions));
+        }
+    }
+
+    // select 컬럼 목록 -> 컬럼을 읽는 테이블 별칭 (select member0_, team1_ from ...)
+    static String key(String sql) {
+        String shape = SqlShape.normalize(sql);
+        if (!shape.startsWith("select ")) {
+            return shape;
+        }
+        int from = topLevelFrom(shape);
+        if (from < 0) {
+            return shape;
+        }
+        Set<String> aliases = new TreeSet<>();
+        Matcher matcher = SELECTED_ALIAS.matcher(shape.substring("select ".length(), from));
+        while (matcher.find()) {
+            aliases.add(matcher.group(1));
+        }
+        return "select " + String.join(", ", aliases) + shape.substring(from);
+    }
+
+    // 서브쿼리 괄호 밖의 첫 " from "
+    private static int topLevelFrom(String shape) {
+        int depth = 0;
+        for (int i = 0; i < shape.length(); i++) {
+            char c = shape.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && shape.startsWith(" from ", i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // EXPLAIN 결과 -> 테이블별 "조인 테이블 접근방식" (scan / index 이름)
+    static List<String> normalize(String plan) {
+        List<String> steps = new ArrayList<>();
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            String join = matcher.group(1).replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            String table = matcher.group(2).toLowerCase(Locale.ROOT);
+            steps.add(join + " " + table + " " + access(matcher.group(3)));
+        }
+        return steps;
+    }
+
+    private static String access(String comment) {
+        String index = comment.contains(":") ? comment.substring(0, comment.indexOf(':')) : comment;
+        if (index.endsWith(".tableScan")) {
+            return "scan"; // 조건이 붙기도 한다. (tableScan: FALSE)
+        }
+        index = index.substring(index.lastIndexOf('.') + 1);
+        return "index " + GENERATED_SUFFIX.matcher(index).replaceAll("$1").toLowerCase(Locale.ROOT);
+    }
+
+    // 실행 순서대로 짝지어 비교한다.
+    static List<String> compare(List<Statement> snapshot, List<Statement> current) {
+        List<String> regressions = new ArrayList<>();
+        for (int i = 0; i < Math.max(snapshot.size(), current.size()); i++) {
+            if (i >= current.size()) {
+                regressions.add("실행되지 않은 쿼리 : " + snapshot.get(i).key);
+                continue;
+            }
+            if (i >= snapshot.size()) {
+                regressions.add("스냅샷에 없는 쿼리 : " + current.get(i).key);
+                continue;
+            }
+            Statement before = snapshot.get(i);
+            Statement after = current.get(i);
+            if (!before.key.equals(after.key)) {
+                regressions.add("쿼리 변경\n  before " + before.key + "\n  after  " + after.key);
+                continue;
+            }
+            if (!joins(before.steps).equals(joins(after.steps))) {
+                regressions.add("조인 변경 : " + after.key + "\n  before " + before.steps + "\n  after  " + after.steps);
+                continue;
+            }
+            for (int j = 0; j < after.steps.size(); j++) {
+                if (!before.steps.get(j).endsWith(" scan") && after.steps.get(j).endsWith(" scan")) {
+                    regressions.add("index -> scan : " + after.key
+                            + "\n  before " + before.steps.get(j) + "\n  after  " + after.steps.get(j));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    // 접근방식을 뺀 조인 종류 + 테이블
+    private static List<String> joins(List<String> steps) {
+        List<String> joins = new ArrayList<>();
+        for (String step : steps) {
+            String join = step.endsWith(" scan") ? step.substring(0, step.length() - " scan".length())
+                    : step.substring(0, step.lastIndexOf(" index "));
+            joins.add(join);
+        }
+        return joins;
+    }
+
+    private static List<Statement> read(Path file) throws IOException {
+        List<Statement> snapshot = new ArrayList<>();
+        Statement statement = null;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.startsWith(STATEMENT_PREFIX)) {
+                statement = new Statement(line.substring(STATEMENT_PREFIX.length()), new ArrayList<>());
+                snapshot.add(statement);
+            } else if (statement != null && !line.isBlank()) {
+                statement.steps.add(line);
+            }
+        }
+        return snapshot;
+    }
+
+    private static void write(Path file, List<Statement> snapshot) {
+        List<String> lines = new ArrayList<>();
+        for (Statement statement : snapshot) {
+            lines.add(STATEMENT_PREFIX + statement.key);
+            lines.addAll(statement.steps);
+            lines.add("");
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static class Statement {
+        final String key;
+        final List<String> steps;
+
+        Statement(String key, List<String> steps) {
+            this.key = key;
+            this.steps = steps;
+        }
+    }
+
+    private static ExplainPlanCapture capture(ExtensionContext context) {
+        return applicationContext(context).getBean(ExplainPlanCapture.class);
+    }
+
+    private static ApplicationContext applicationContext(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context);
+    }
+}
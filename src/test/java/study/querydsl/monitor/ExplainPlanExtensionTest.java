@@ -0,0 +1,99 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.monitor.ExplainPlanExtension.Statement;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExplainPlanExtensionTest {
+
+    private static final String JOIN_PLAN = "SELECT\n" +
+            "    \"MEMBER0_\".\"MEMBER_ID\" AS \"MEMBER_I1_1_\"\n" +
+            "FROM \"PUBLIC\".\"MEMBER\" \"MEMBER0_\"\n" +
+            "    /* PUBLIC.MEMBER.tableScan */\n" +
+            "LEFT OUTER JOIN \"PUBLIC\".\"TEAM\" \"TEAM1_\"\n" +
+            "    /* PUBLIC.PRIMARY_KEY_2: ID = MEMBER0_.TEAM_ID */\n" +
+            "    ON \"MEMBER0_\".\"TEAM_ID\" = \"TEAM1_\".\"ID\"\n" +
+            "WHERE \"TEAM1_\".\"NAME\" = 'teamA'";
+
+    // 실행 계획 정규화
+    @Test
+    public void normalizesPlan() {
+        assertThat(ExplainPlanExtension.normalize(JOIN_PLAN))
+                .containsExactly("from member scan", "left outer join team index primary_key");
+
+        assertThat(ExplainPlanExtension.normalize(
+                "SELECT \"MEMBER0_\".\"MEMBER_ID\" FROM \"PUBLIC\".\"MEMBER\" \"MEMBER0_\" " +
+                        "/* PUBLIC.IDX_MEMBER_USERNAME: USERNAME = 'member1' */ WHERE \"MEMBER0_\".\"USERNAME\" = 'member1'"))
+                .containsExactly("from member index idx_member_username");
+        assertThat(ExplainPlanExtension.normalize(
+                "SELECT \"MEMBER0_\".\"MEMBER_ID\" FROM \"PUBLIC\".\"MEMBER\" \"MEMBER0_\" /* PUBLIC.MEMBER.tableScan: FALSE */"))
+                .containsExactly("from member scan");
+    }
+
+    // select 컬럼 목록은 컬럼을 읽는 테이블 별칭만 남긴다.
+    @Test
+    public void keyKeepsSelectedTablesOnly() {
+        String fetchJoin = "select member0_.member_id as member_i1_1_0_, team1_.id as id1_2_1_, member0_.age as age2_1_0_ " +
+                "from member member0_ inner join team team1_ on member0_.team_id=team1_.id where member0_.username='member1'";
+        String join = "select member0_.member_id as member_i1_1_, member0_.age as age2_1_ " +
+                "from member member0_ inner join team team1_ on member0_.team_id=team1_.id where member0_.username='member1'";
+
+        assertThat(ExplainPlanExtension.key(fetchJoin)).isEqualTo("select member0_, team1_ " +
+                "from member member0_ inner join team team1_ on member0_.team_id=team1_.id where member0_.username=?");
+        // 컬럼이 늘어도 키는 같고, fetchJoin 이 빠지면 키가 바뀐다.
+        assertThat(ExplainPlanExtension.key(join.replace("member0_.age as age2_1_", "member0_.age as age2_1_, member0_.grade as grade5_1_")))
+                .isEqualTo(ExplainPlanExtension.key(join));
+        assertThat(ExplainPlanExtension.key(join)).isNotEqualTo(ExplainPlanExtension.key(fetchJoin));
+        // select 절 서브쿼리의 from 은 건너뛴다.
+        assertThat(ExplainPlanExtension.key("select member0_.username, (select max(member1_.age) from member member1_) from member member0_"))
+                .isEqualTo("select member0_, member1_ from member member0_");
+    }
+
+    // 인덱스에서 스캔으로 바뀌면 회귀
+    @Test
+    public void indexToScanIsRegression() {
+        List<Statement> snapshot = List.of(statement("select ?", "from member index idx_member_username"));
+
+        assertThat(ExplainPlanExtension.compare(snapshot, List.of(statement("select ?", "from member scan"))))
+                .hasSize(1)
+                .allMatch(regression -> regression.startsWith("index -> scan"));
+        // 반대 방향(scan -> index)과 인덱스 이름 변경은 허용
+        assertThat(ExplainPlanExtension.compare(List.of(statement("select ?", "from member scan")), snapshot)).isEmpty();
+        assertThat(ExplainPlanExtension.compare(snapshot,
+                List.of(statement("select ?", "from member index idx_member_username_age")))).isEmpty();
+    }
+
+    // 조인이 바뀌면 회귀
+    @Test
+    public void joinChangeIsRegression() {
+        List<Statement> snapshot = List.of(statement("select ?", "from member scan", "left outer join team index primary_key"));
+
+        assertThat(ExplainPlanExtension.compare(snapshot,
+                List.of(statement("select ?", "from team scan", "inner join member index fk_index"))))
+                .hasSize(1)
+                .allMatch(regression -> regression.startsWith("조인 변경"));
+    }
+
+    // 쿼리가 바뀌거나, 빠지거나, 새로 생기면 회귀
+    @Test
+    public void statementChangeIsRegression() {
+        Statement member = statement("select member0_ from member member0_", "from member scan");
+        Statement team = statement("select team0_ from team team0_", "from team scan");
+
+        assertThat(ExplainPlanExtension.compare(List.of(member), List.of(team)))
+                .hasSize(1)
+                .allMatch(regression -> regression.startsWith("쿼리 변경"));
+        assertThat(ExplainPlanExtension.compare(List.of(member, team), List.of(member)))
+                .containsExactly("실행되지 않은 쿼리 : select team0_ from team team0_");
+        assertThat(ExplainPlanExtension.compare(List.of(member), List.of(member, team)))
+                .containsExactly("스냅샷에 없는 쿼리 : select team0_ from team team0_");
+        assertThat(ExplainPlanExtension.compare(List.of(member, team), List.of(member, team))).isEmpty();
+    }
+
+    private static Statement statement(String key, String... steps) {
+        return new Statement(key, List.of(steps));
+    }
+}
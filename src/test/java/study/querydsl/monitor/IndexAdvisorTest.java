@@ -0,0 +1,150 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.PreparedStatementInformation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.SqlPredicateParser.ColumnUse;
+import study.querydsl.monitor.SqlPredicateParser.Usage;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    IndexAdvisor indexAdvisor;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        indexAdvisor.reset();
+        indexAdvisor.setRecording(true);
+    }
+
+    @AfterEach
+    public void after() {
+        indexAdvisor.setRecording(false);
+        indexAdvisor.reset();
+    }
+
+    // 조건 / 정렬 컬럼 해석
+    @Test
+    public void parsesPredicateAndSortColumns() {
+        List<ColumnUse> uses = SqlPredicateParser.parse(SqlShape.normalize(
+                "select member0_.member_id as col_0_0_ from member member0_ " +
+                        "left outer join team team1_ on member0_.team_id=team1_.id " +
+                        "where member0_.username='member1' and member0_.age>=10 and member0_.age<=30 " +
+                        "order by member0_.age desc"));
+
+        assertThat(uses)
+                .extracting(use -> use.table, use -> use.column, use -> use.usage)
+                .containsExactly(
+                        tuple("member", "team_id", Usage.JOIN),
+                        tuple("team", "id", Usage.JOIN),
+                        tuple("member", "username", Usage.EQUALITY),
+                        tuple("member", "age", Usage.RANGE),
+                        tuple("member", "age", Usage.RANGE),
+                        tuple("member", "age", Usage.SORT));
+
+        // equality -> sort -> range
+        assertThat(IndexAdvisor.indexColumns("member", uses)).containsExactly("username", "age");
+    }
+
+    // 서브쿼리의 where / order by 를 바깥 절로 착각하지 않는다.
+    @Test
+    public void parsesOuterClauseAroundSubquery() {
+        List<ColumnUse> uses = SqlPredicateParser.parse(SqlShape.normalize(
+                "select member0_.member_id as col_0_0_ from member member0_ " +
+                        "where member0_.age in (select member1_.age from member member1_ where member1_.age>10) " +
+                        "order by member0_.username asc"));
+
+        assertThat(uses)
+                .extracting(use -> use.table, use -> use.column, use -> use.usage)
+                .containsExactly(
+                        tuple("member", "age", Usage.EQUALITY),
+                        tuple("member", "age", Usage.RANGE),
+                        tuple("member", "username", Usage.SORT));
+    }
+
+    // 풀스캔 쿼리만 추천
+    @Test
+    public void recommendsOnlyFullScanQueries() {
+        memberJpaRepository.findByUsername_Querydsl("member1"); // idx_member_username
+        em.createQuery("select m from Member m where m.age between :from and :to order by m.age", Member.class)
+                .setParameter("from", 10)
+                .setParameter("to", 30)
+                .getResultList();
+
+        List<IndexRecommendation> recommendations = indexAdvisor.recommend();
+
+        assertThat(recommendations)
+                .extracting(IndexRecommendation::getTable, IndexRecommendation::getColumns)
+                .contains(tuple("member", List.of("age")))
+                .doesNotContain(tuple("member", List.of("username")));
+
+        IndexRecommendation age = recommendations.stream()
+                .filter(r -> r.getColumns().equals(List.of("age")))
+                .findFirst()
+                .orElseThrow();
+        assertThat(age.getEntity()).isEqualTo("Member");
+        assertThat(age.getExecutions()).isEqualTo(1);
+        assertThat(age.getPlan()).containsIgnoringCase("tableScan");
+        // 바인딩 값(10, 30)은 내보내지 않는다.
+        assertThat(age.getSql()).contains("between ? and ?").doesNotContain("10", "30");
+        assertThat(age.getPlan()).doesNotContain("10", "30");
+        assertThat(age.getDdl()).isEqualTo("create index idx_member_age on member (age)");
+        assertThat(age.getAnnotation()).isEqualTo("@Index(name = \"idx_member_age\", columnList = \"age\")");
+    }
+
+    // 기록중이 아니면 무시
+    @Test
+    public void ignoresWhenNotRecording() {
+        indexAdvisor.setRecording(false);
+
+        em.createQuery("select m from Member m where m.age > 10", Member.class).getResultList();
+
+        assertThat(indexAdvisor.recommend()).isEmpty();
+    }
+
+    // SQL 주석(JPQL)의 ? 에 값을 넣지 않는다.
+    @Test
+    public void sqlWithValuesIgnoresComments() {
+        PreparedStatementInformation statement = new PreparedStatementInformation(
+                ConnectionInformation.fromTestConnection(null),
+                "/* select m from Member m where m.username = ?1 */ select member0_.member_id from member member0_ where member0_.username=?");
+        statement.setParameterValue(1, "member1"); // JDBC 파라미터 번호
+
+        assertThat(IndexAdvisor.sqlWithValues(statement))
+                .isEqualTo("select member0_.member_id from member member0_ where member0_.username='member1'");
+        assertThat(statement.getSql()).startsWith("/*"); // 다른 리스너에는 원래 SQL
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.monitor;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class NPlusOneDetectorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    NPlusOneDetector detector;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        for (int i = 0; i < 5; i++) {
+            Team t = new Team("team" + i);
+            em.persist(t);
+            em.persist(new Member("member" + i, i * 10, t));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void lazyTeamPerRow() {
+        QueryCountScope scope = detector.start(3, NPlusOneDetector.Mode.LOG);
+        try (scope) {
+            List<Member> members = queryFactory.selectFrom(member).fetch();
+            for (Member m : members) {
+                m.getTeam().getName(); // 회원마다 team select
+            }
+        }
+
+        assertThat(scope.getStatements()).isEqualTo(6); // 1 + N
+        assertThat(scope.getRepeatedSelects()).hasSize(1);
+        assertThat(scope.getRepeatedSelects().keySet().iterator().next()).contains("from team");
+    }
+
+    @Test
+    public void failMode() {
+        assertThatThrownBy(() -> {
+            try (QueryCountScope scope = detector.start(3, NPlusOneDetector.Mode.FAIL)) {
+                for (Member m : queryFactory.selectFrom(member).fetch()) {
+                    m.getTeam().getName();
+                }
+            }
+        }).isInstanceOf(NPlusOneDetectedException.class);
+    }
+
+    @Test
+    public void fetchJoin() {
+        QueryCountScope scope = detector.start(3, NPlusOneDetector.Mode.FAIL);
+        try (scope) {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .join(member.team, team).fetchJoin()
+                    .fetch();
+            for (Member m : members) {
+                m.getTeam().getName();
+            }
+        }
+
+        assertThat(scope.getStatements()).isEqualTo(1);
+        assertThat(scope.getRepeatedSelects()).isEmpty();
+    }
+
+    @Test
+    public void normalize() {
+        assertThat(SqlShape.normalize("/* comment */ select * from team t where t.id=3 and t.name='a''b'"))
+                .isEqualTo("select * from team t where t.id=? and t.name=?");
+        assertThat(SqlShape.normalize("select * from member m where m.team_id in (?, ?, ?)"))
+                .isEqualTo(SqlShape.normalize("select * from member m where m.team_id in (?)"));
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import study.querydsl.repository.MemberJpaRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 커넥션 획득 / 반납을 보려고 테스트 트랜잭션 없이 실행한다.
+@SpringBootTest
+@ActiveProfiles("mem")
+class PoolMonitorTest {
+
+    private static final String METHOD = "MemberJpaRepository.findAll_Querydsl";
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    PoolMonitor poolMonitor;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    // 리포지토리 메서드별 점유 시간
+    @Test
+    public void recordsHoldTimePerRepositoryMethod() {
+        long before = count("querydsl.pool.hold");
+        long acquiresBefore = count("querydsl.pool.acquire");
+
+        memberJpaRepository.findAll_Querydsl();
+
+        assertThat(count("querydsl.pool.hold")).isEqualTo(before + 1);
+        // 획득 대기도 점유 시간과 같은 method 태그 (획득 시점에는 아직 리포지토리 메서드를 모른다)
+        assertThat(count("querydsl.pool.acquire")).isEqualTo(acquiresBefore + 1);
+        assertThat(poolMonitor.hikari()).isNotNull();
+        assertThat(registry.get("querydsl.pool.connections").tag("state", "total").gauge().value())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    // 구간 통계
+    @Test
+    public void drainsWindowStats() {
+        poolMonitor.drainWindow();
+
+        memberJpaRepository.findAll_Querydsl();
+        memberJpaRepository.findAll_Querydsl();
+
+        PoolMonitor.WindowStats stats = poolMonitor.drainWindow();
+        assertThat(stats.getReleases()).isGreaterThanOrEqualTo(2);
+        assertThat(poolMonitor.drainWindow().getReleases()).isZero();
+    }
+
+    // 대기가 길면 늘리고 처리량이 그대로면 되돌린다
+    @Test
+    public void growsOnLongWaitAndRevertsWhenThroughputIsFlat() {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(poolMonitor, 2, 20, 5, 10_000);
+
+        // 10초 동안 1000건 반납(100/s), 평균 대기 20ms, 평균 점유 50ms
+        assertThat(sizer.nextSize(8, stats(100, 20, 1000, 50), 10)).isEqualTo(10);
+        // 늘렸는데 처리량이 그대로 -> DB 포화, 이전 크기로
+        assertThat(sizer.nextSize(10, stats(100, 20, 1000, 50), 10)).isEqualTo(8);
+        // 대기가 계속 길어도 포화된 크기 이상으로는 늘리지 않는다.
+        assertThat(sizer.nextSize(8, stats(100, 20, 1000, 50), 10)).isEqualTo(8);
+    }
+
+    // 처리량이 늘면 계속 늘린다
+    @Test
+    public void keepsGrowingWhileThroughputIncreases() {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(poolMonitor, 2, 20, 5, 10_000);
+
+        assertThat(sizer.nextSize(8, stats(100, 20, 1000, 50), 10)).isEqualTo(10);
+        assertThat(sizer.nextSize(10, stats(100, 20, 1500, 50), 10)).isEqualTo(12);
+        // 상한
+        assertThat(new AdaptivePoolSizer(poolMonitor, 2, 20, 5, 10_000)
+                .nextSize(19, stats(100, 20, 1000, 50), 10)).isEqualTo(20);
+    }
+
+    // 한가하면 하한까지 줄인다
+    @Test
+    public void shrinksToMinimumWhenIdle() {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(poolMonitor, 2, 20, 5, 10_000);
+
+        assertThat(sizer.nextSize(3, stats(0, 0, 0, 0), 10)).isEqualTo(2);
+        assertThat(sizer.nextSize(2, stats(0, 0, 0, 0), 10)).isEqualTo(2);
+    }
+
+    private long count(String name) {
+        Timer timer = registry.find(name).tag("method", METHOD).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static PoolMonitor.WindowStats stats(long acquires, long waitMillis, long releases, long holdMillis) {
+        return new PoolMonitor.WindowStats(acquires, acquires * waitMillis * 1_000_000,
+                releases, releases * holdMillis * 1_000_000);
+    }
+}
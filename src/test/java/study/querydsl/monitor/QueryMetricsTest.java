@@ -0,0 +1,86 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class QueryMetricsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    // 리포지토리 메서드별 기록
+    @Test
+    public void recordsPerRepositoryMethod() {
+        Timer timer = registry.find("querydsl.query")
+                .tags("method", "MemberJpaRepository.findAll_Querydsl", "operation", "fetch")
+                .timer();
+        long before = timer == null ? 0 : timer.count();
+
+        memberJpaRepository.findAll_Querydsl();
+
+        timer = registry.get("querydsl.query")
+                .tags("method", "MemberJpaRepository.findAll_Querydsl", "operation", "fetch", "shape", "Member/1")
+                .timer();
+        assertThat(timer.count()).isEqualTo(before + 1);
+
+        DistributionSummary rows = registry.get("querydsl.query.rows")
+                .tags("method", "MemberJpaRepository.findAll_Querydsl")
+                .summary();
+        assertThat(rows.max()).isGreaterThanOrEqualTo(3);
+
+        DistributionSummary statements = registry.get("querydsl.query.statements")
+                .tags("method", "MemberJpaRepository.findAll_Querydsl")
+                .summary();
+        assertThat(statements.max()).isGreaterThanOrEqualTo(1);
+    }
+
+    // PreparedQuery 실행도 같은 태그로 기록
+    @Test
+    public void recordsPreparedQuery() {
+        Timer timer = registry.find("querydsl.query")
+                .tags("method", "MemberJpaRepository.findByUsername_Prepared", "operation", "fetch")
+                .timer();
+        long before = timer == null ? 0 : timer.count();
+
+        assertThat(memberJpaRepository.findByUsername_Prepared("member1")).hasSize(1);
+
+        timer = registry.get("querydsl.query")
+                .tags("method", "MemberJpaRepository.findByUsername_Prepared", "operation", "fetch", "shape", "Member/1")
+                .timer();
+        assertThat(timer.count()).isEqualTo(before + 1);
+    }
+}
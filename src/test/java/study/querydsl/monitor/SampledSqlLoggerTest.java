@@ -0,0 +1,51 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SampledSqlLoggerTest {
+
+    @Test
+    public void histogramPerShape() {
+        SampledSqlLogger logger = new SampledSqlLogger(100, 100, 100);
+
+        logger.record("select * from member where member_id=1", null, 2_000_000, false);
+        logger.record("select * from member where member_id=2", null, 4_000_000, false);
+        logger.record("select * from team where id=1", null, 500_000, false);
+        logger.drain(); // 워커 스레드 대신 직접 처리
+
+        Map<String, LatencyHistogram> histograms = logger.getHistograms();
+        assertThat(histograms).hasSize(2);
+
+        LatencyHistogram memberHistogram = histograms.get("select * from member where member_id=?");
+        assertThat(memberHistogram.getCount()).isEqualTo(2);
+        assertThat(memberHistogram.getMaxMicros()).isEqualTo(4_000);
+        assertThat(memberHistogram.getMeanMicros()).isEqualTo(3_000);
+    }
+
+    @Test
+    public void dropWhenQueueFull() {
+        SampledSqlLogger logger = new SampledSqlLogger(1, 100, 2);
+
+        for (int i = 0; i < 5; i++) {
+            logger.record("select 1", "select 1", 1_000, false);
+        }
+
+        assertThat(logger.getDropped()).isEqualTo(3);
+    }
+
+    @Test
+    public void percentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10_000); // 10us
+        }
+        histogram.record(10_000_000); // 10ms
+
+        assertThat(histogram.percentileMicros(50)).isEqualTo(16); // [8, 16) 구간 상한
+        assertThat(histogram.percentileMicros(100)).isGreaterThanOrEqualTo(10_000);
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryCountScope;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class MemberBatchFetcherTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    NPlusOneDetector detector;
+
+    @Autowired
+    MemberBatchFetcher memberBatchFetcher;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        for (int i = 0; i < 5; i++) {
+            Team t = new Team("team" + i);
+            em.persist(t);
+            em.persist(new Member("member" + i + "a", 10, t));
+            em.persist(new Member("member" + i + "b", 20, t));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void fetchTeams() {
+        MemberBatchFetcher fetcher = new MemberBatchFetcher(em, queryFactory, 2);
+
+        // chunk 별 in 쿼리 3번은 허용, 팀 5개를 하나씩 조회하면 실패
+        QueryCountScope scope = detector.start(3, NPlusOneDetector.Mode.FAIL);
+        try (scope) {
+            List<Member> members = fetcher.fetchTeams(queryFactory.selectFrom(member).fetch());
+            for (Member m : members) {
+                assertThat(Hibernate.isInitialized(m.getTeam())).isTrue();
+                m.getTeam().getName();
+            }
+        }
+
+        // 회원 1 + 팀 5개를 2개씩 in 쿼리 3번
+        assertThat(scope.getStatements()).isEqualTo(4);
+    }
+
+    @Test
+    public void fetchMembers() {
+        MemberBatchFetcher fetcher = new MemberBatchFetcher(em, queryFactory, 100);
+
+        QueryCountScope scope = detector.start(1, NPlusOneDetector.Mode.FAIL);
+        try (scope) {
+            List<Team> teams = fetcher.fetchMembers(queryFactory.selectFrom(team).fetch());
+            for (Team t : teams) {
+                assertThat(t.getMembers()).hasSize(2);
+            }
+        }
+
+        assertThat(scope.getStatements()).isEqualTo(2);
+    }
+
+    // 커서 페이지의 team 은 in 쿼리 한번으로 읽는다.
+    @Test
+    public void cursorPageFetchesTeams() {
+        QueryCountScope scope = detector.start(1, NPlusOneDetector.Mode.FAIL);
+        try (scope) {
+            List<Member> members = memberJpaRepository.findPageByCursor(null, 4).getContent();
+            assertThat(members).hasSize(4);
+            for (Member m : members) {
+                assertThat(Hibernate.isInitialized(m.getTeam())).isTrue();
+            }
+        }
+
+        assertThat(scope.getStatements()).isEqualTo(2);
+    }
+
+    // 호출한 쪽의 트랜잭션에서만 실행한다.
+    @Test
+    public void requiresCallerTransaction() {
+        TransactionTemplate notSupported = new TransactionTemplate(transactionManager);
+        notSupported.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+
+        assertThatThrownBy(() -> notSupported.executeWithoutResult(status -> memberBatchFetcher.fetchTeams(List.of())))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+}
@@ -4,16 +4,23 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
+@ActiveProfiles("mem")
 @Transactional
 class MemberJpaRepositoryTest {
 
@@ -52,4 +59,110 @@ class MemberJpaRepositoryTest {
         List<Member> result2 = memberJpaRepository.findByUsername_Querydsl("member1");
         Assertions.assertThat(result2).containsExactly(member);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void saveAllTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            members.add(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+
+        memberJpaRepository.saveAll(members, 100);
+
+        Assertions.assertThat(em.contains(members.get(0))).isFalse(); // chunk 마다 clear
+        Assertions.assertThat(memberJpaRepository.findAll()).hasSize(250);
+        Assertions.assertThat(memberJpaRepository.findByUsername("member249").get(0).getTeam().getName())
+                .isEqualTo("teamB");
+    }
+
+    @Test
+    public void preparedQueryTest() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+
+        // 같은 쿼리 모양에 파라미터만 바꿔서 실행
+        Assertions.assertThat(memberJpaRepository.findByUsername_Prepared("member1")).containsExactly(member1);
+        Assertions.assertThat(memberJpaRepository.findByUsername_Prepared("member2")).containsExactly(member2);
+        Assertions.assertThat(memberJpaRepository.findByUsername_Prepared("member3")).isEmpty();
+    }
+
+    @Test
+    public void keysetPagingTest() {
+        memberJpaRepository.save(new Member("member1", 10));
+        memberJpaRepository.save(new Member("member2", 20));
+        memberJpaRepository.save(new Member("member3", 20));
+        memberJpaRepository.save(new Member(null, 20));
+        memberJpaRepository.save(new Member("member3", 20)); // 같은 정렬 키 -> member_id로 구분
+        memberJpaRepository.save(new Member("member5", 30));
+
+        List<String> usernames = new ArrayList<>();
+        List<Integer> ages = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Member> page = memberJpaRepository.findPageByCursor(cursor, 2);
+            for (Member m : page.getContent()) {
+                usernames.add(m.getUsername());
+                ages.add(m.getAge());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertThat(pages).isEqualTo(3);
+        Assertions.assertThat(ages).containsExactly(30, 20, 20, 20, 20, 10);
+        Assertions.assertThat(usernames).containsExactly("member5", "member2", "member3", "member3", null, "member1");
+
+        // 페이지 크기는 1 이상 (@Repository 예외 변환으로 InvalidDataAccessApiUsageException 에 감싸진다)
+        Assertions.assertThatThrownBy(() -> memberJpaRepository.findPageByCursor(null, 0))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchTest() {
+        Team teamA = new Team("searchTeamA");
+        Team teamB = new Team("searchTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("searchTeamB");
+
+        List<MemberTeamDto> result = memberJpaRepository.search(condition);
+        Assertions.assertThat(result).extracting("username").containsExactly("member4");
+        Assertions.assertThat(result.get(0).getTeamName()).isEqualTo("searchTeamB");
+
+        // 같은 조건 조합, 다른 값 -> 같은 쿼리 재사용
+        condition.setAgeGoe(20);
+        condition.setTeamName("searchTeamA");
+        Assertions.assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactly("member2");
+
+        // 페이지 크기는 1 이상 (findPageByCursor 와 같다)
+        Assertions.assertThatThrownBy(() -> memberJpaRepository.searchPage(condition, null, 0))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchShapeTest() {
+        MemberSearchCondition teamOnly = new MemberSearchCondition();
+        teamOnly.setTeamName("teamA");
+        teamOnly.setUsername(""); // 빈 문자열은 조건 없음
+
+        String jpql = memberJpaRepository.searchJpql(teamOnly);
+        Assertions.assertThat(jpql).contains("team.name = ?").doesNotContain("username =").doesNotContain("age >=");
+
+        MemberSearchCondition otherTeam = new MemberSearchCondition();
+        otherTeam.setTeamName("teamB");
+        Assertions.assertThat(memberJpaRepository.searchJpql(otherTeam)).isSameAs(jpql); // 값이 아니라 조건 조합이 키
+    }
+}
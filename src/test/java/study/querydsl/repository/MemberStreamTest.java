@@ -0,0 +1,79 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class MemberStreamTest {
+
+    // -Dstream.test.members=500000 처럼 조절 가능
+    static final int MEMBER_COUNT = Integer.getInteger("stream.test.members", 300_000);
+    static final int CLEAR_EVERY = 1_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void before() {
+        // 대량 데이터는 H2 SYSTEM_RANGE 로 한번에 넣는다. (시퀀스와 겹치지 않게 큰 id 사용)
+        em.createNativeQuery("insert into member (member_id, username, age) " +
+                        "select 10000000 + x, concat('member', x), mod(x, 100) from system_range(1, " + MEMBER_COUNT + ")")
+                .executeUpdate();
+    }
+
+    @Test
+    public void streamAll_Querydsl() {
+        assertFlatPersistenceContext(memberJpaRepository.streamAll_Querydsl(500, CLEAR_EVERY));
+    }
+
+    @Test
+    public void streamAll() {
+        assertFlatPersistenceContext(memberJpaRepository.streamAll(500, CLEAR_EVERY));
+    }
+
+    private void assertFlatPersistenceContext(Stream<Member> members) {
+        Session session = em.unwrap(Session.class);
+        AtomicLong rows = new AtomicLong();
+        AtomicInteger maxManaged = new AtomicInteger();
+        long usedBefore = usedHeap();
+
+        try (Stream<Member> stream = members) {
+            stream.forEach(m -> {
+                rows.incrementAndGet();
+                maxManaged.accumulateAndGet(session.getStatistics().getEntityCount(), Math::max);
+            });
+        }
+
+        long usedAfter = usedHeap();
+        System.out.println("rows = " + rows + ", maxManaged = " + maxManaged
+                + ", heapDelta(MB) = " + (usedAfter - usedBefore) / (1024 * 1024));
+
+        assertThat(rows.get()).isEqualTo(MEMBER_COUNT);
+        // 영속성 컨텍스트에는 최대 clearEvery 건만 유지된다. -> 전체 건수와 무관하게 메모리 사용량이 일정
+        assertThat(maxManaged.get()).isLessThanOrEqualTo(CLEAR_EVERY);
+    }
+
+    private long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
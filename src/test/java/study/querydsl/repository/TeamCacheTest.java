@@ -0,0 +1,124 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.SecondLevelCacheStatistics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * 2차 캐시는 커밋된 데이터만 저장하므로 트랜잭션을 직접 커밋하고 끝나면 지운다.
+ * */
+@SpringBootTest
+@ActiveProfiles("mem")
+class TeamCacheTest {
+
+    static final String TEAM_REGION = Team.class.getName();
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamJpaRepository teamJpaRepository;
+
+    @Autowired
+    SecondLevelCacheStatistics cacheStatistics;
+
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        emf.getCache().evictAll();
+        teamId = transactionTemplate.execute(status -> {
+            Team cacheTeam = new Team("cacheTeam");
+            teamJpaRepository.save(cacheTeam);
+            return cacheTeam.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .delete(team)
+                .where(team.name.startsWith("cacheTeam"))
+                .execute());
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void secondLevelCacheHit() {
+        transactionTemplate.executeWithoutResult(status -> teamJpaRepository.findById(teamId)); // miss -> put
+        long hitsBefore = regionStats().getHitCount();
+
+        transactionTemplate.executeWithoutResult(status -> teamJpaRepository.findById(teamId));
+
+        assertThat(regionStats().getHitCount()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    public void bulkUpdateEvictsTeamRegion() {
+        transactionTemplate.executeWithoutResult(status -> teamJpaRepository.findById(teamId));
+        assertThat(emf.getCache().contains(Team.class, teamId)).isTrue();
+
+        // 벌크 update 는 영속성 컨텍스트를 거치지 않지만 Hibernate 가 Team 캐시 영역을 비운다.
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(team)
+                .set(team.name, "cacheTeamRenamed")
+                .where(team.id.eq(teamId))
+                .execute());
+
+        assertThat(emf.getCache().contains(Team.class, teamId)).isFalse();
+        String name = transactionTemplate.execute(status -> teamJpaRepository.findById(teamId).get().getName());
+        assertThat(name).isEqualTo("cacheTeamRenamed");
+    }
+
+    @Test
+    public void queryCacheInvalidatedByWrite() {
+        assertThat(findByName("cacheTeam")).hasSize(1);
+        assertThat(findByName("cacheTeam")).hasSize(1);
+
+        transactionTemplate.executeWithoutResult(status -> teamJpaRepository.save(new Team("cacheTeam")));
+
+        // team 테이블이 변경되었으므로 캐시된 결과(1건)를 쓰지 않는다.
+        assertThat(findByName("cacheTeam")).hasSize(2);
+    }
+
+    @Test
+    public void statisticsSnapshot() {
+        // mem 프로필은 querydsl.cache-statistics.enabled=true
+        assertThat(cacheStatistics.isEnabled()).isTrue();
+        transactionTemplate.executeWithoutResult(status -> teamJpaRepository.findById(teamId));
+
+        assertThat(cacheStatistics.snapshot())
+                .filteredOn(stats -> stats.getRegion().equals(TEAM_REGION))
+                .hasSize(1);
+    }
+
+    private List<Team> findByName(String name) {
+        return transactionTemplate.execute(status -> teamJpaRepository.findByName_Querydsl(name));
+    }
+
+    private CacheRegionStatistics regionStats() {
+        return emf.unwrap(SessionFactory.class).getStatistics().getCacheRegionStatistics(TEAM_REGION);
+    }
+}
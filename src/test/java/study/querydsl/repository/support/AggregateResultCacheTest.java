@@ -0,0 +1,172 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamAgeStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * 캐시는 커밋된 결과만 공유하므로 트랜잭션을 직접 커밋하고 끝나면 지운다.
+ * */
+@SpringBootTest
+@ActiveProfiles("mem")
+class AggregateResultCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    AggregateResultCache cache;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    Long teamAId;
+
+    @BeforeEach
+    public void before() {
+        cache.invalidateAll();
+        teamAId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("aggTeamA");
+            Team teamB = new Team("aggTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("agg1", 10, teamA));
+            em.persist(new Member("agg2", 20, teamA));
+            em.persist(new Member("agg3", 30, teamB));
+            em.persist(new Member("agg4", 40, teamB));
+            return teamA.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("agg")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("aggTeam")).execute();
+        });
+        cache.invalidateAll();
+    }
+
+    @Test
+    public void teamAgeStats() {
+        List<TeamAgeStats> first = transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+        long misses = cache.getMissCount();
+        List<TeamAgeStats> second = transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+
+        assertThat(cache.getMissCount()).isEqualTo(misses); // 두번째는 캐시
+        assertThat(second).usingRecursiveFieldByFieldElementComparator().isEqualTo(first);
+
+        TeamAgeStats teamA = stats(second, "aggTeamA");
+        assertThat(teamA.getCount()).isEqualTo(2);
+        assertThat(teamA.getSum()).isEqualTo(30);
+        assertThat(teamA.getAvg()).isEqualTo(15);
+        assertThat(teamA.getMax()).isEqualTo(20);
+        assertThat(teamA.getMin()).isEqualTo(10);
+    }
+
+    @Test
+    public void memberChangeInvalidatesMemberAggregatesOnly() {
+        transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+        transactionTemplate.execute(status -> teamNames());
+        long misses = cache.getMissCount();
+
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("agg5", 60, em.find(Team.class, teamAId))));
+
+        List<TeamAgeStats> stats = transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+        assertThat(stats(stats, "aggTeamA").getCount()).isEqualTo(3);
+        assertThat(stats(stats, "aggTeamA").getMax()).isEqualTo(60);
+        assertThat(cache.getMissCount()).isEqualTo(misses + 1);
+
+        transactionTemplate.execute(status -> teamNames()); // Team 만 조회하는 집계는 유지
+        assertThat(cache.getMissCount()).isEqualTo(misses + 1);
+    }
+
+    @Test
+    public void uncommittedChangeIsNotCached() {
+        transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("agg5", 60, em.find(Team.class, teamAId)));
+            // 같은 트랜잭션에서는 변경이 보인다. (auto flush, 캐시 미사용)
+            assertThat(stats(memberJpaRepository.findTeamAgeStats(), "aggTeamA").getCount()).isEqualTo(3);
+            status.setRollbackOnly();
+        });
+
+        List<TeamAgeStats> stats = transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+        assertThat(stats(stats, "aggTeamA").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void bindingsArePartOfKey() {
+        List<Long> teamA = transactionTemplate.execute(status -> countByTeam("aggTeamA"));
+        List<Long> teamB = transactionTemplate.execute(status -> countByTeam("aggTeamB"));
+
+        assertThat(teamA).containsExactly(2L);
+        assertThat(teamB).containsExactly(2L);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void entityProjectionIsRejected() {
+        assertThatThrownBy(() -> cache.fetch(new JPAQueryFactory(em).selectFrom(member)))
+                .isInstanceOf(IllegalArgumentException.class);
+        // Tuple 인자에 엔티티가 있어도 거부
+        assertThatThrownBy(() -> cache.fetch(new JPAQueryFactory(em).select(member, member.age).from(member)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // 수정 가능한 엔티티가 영속성 컨텍스트에 있으면 flush 전 변경이 있을 수 있으므로 캐시를 쓰지 않는다.
+    @Test
+    public void pendingUpdateIsNotCached() {
+        transactionTemplate.execute(status -> memberJpaRepository.findTeamAgeStats());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member agg1 = new JPAQueryFactory(em).selectFrom(member).where(member.username.eq("agg1")).fetchOne();
+            agg1.setAge(70); // 아직 flush 전
+            assertThat(stats(memberJpaRepository.findTeamAgeStats(), "aggTeamA").getMax()).isEqualTo(70);
+            status.setRollbackOnly();
+        });
+    }
+
+    private List<Tuple> teamNames() {
+        return cache.fetch(new JPAQueryFactory(em)
+                .select(team.name, team.id.count())
+                .from(team)
+                .where(team.name.startsWith("aggTeam"))
+                .groupBy(team.name));
+    }
+
+    private List<Long> countByTeam(String teamName) {
+        return cache.fetch(new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.eq(teamName)));
+    }
+
+    private static TeamAgeStats stats(List<TeamAgeStats> stats, String teamName) {
+        return stats.stream().filter(s -> s.getTeamName().equals(teamName)).findFirst().orElseThrow();
+    }
+}
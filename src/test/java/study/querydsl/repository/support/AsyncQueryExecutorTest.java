@@ -0,0 +1,141 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * 비동기 쿼리는 별도 트랜잭션에서 실행되므로 데이터를 커밋하고 끝나면 지운다.
+ * */
+@SpringBootTest
+@ActiveProfiles("mem")
+class AsyncQueryExecutorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    AsyncQueryExecutor asyncQueryExecutor;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team asyncTeam = new Team("asyncTeam");
+            em.persist(asyncTeam);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("async" + i, i, asyncTeam));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("async")).execute();
+            queryFactory.delete(team).where(team.name.eq("asyncTeam")).execute();
+        });
+    }
+
+    @Test
+    public void contentAndCountInParallel() {
+        CompletableFuture<List<String>> content = asyncQueryExecutor.submit(queryFactory -> queryFactory
+                .select(member.username)
+                .from(member)
+                .where(member.username.startsWith("async"))
+                .orderBy(member.age.desc())
+                .limit(3)
+                .fetch());
+        CompletableFuture<Long> count = asyncQueryExecutor.submit(queryFactory -> queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.username.startsWith("async"))
+                .fetchOne());
+
+        CompletableFuture.allOf(content, count).join();
+
+        assertThat(content.join()).containsExactly("async9", "async8", "async7");
+        assertThat(count.join()).isEqualTo(10);
+    }
+
+    @Test
+    public void runsOnWorkerThreadWithOwnTransaction() {
+        String caller = Thread.currentThread().getName();
+
+        String worker = asyncQueryExecutor.submit(queryFactory -> {
+            assertThat(em.isJoinedToTransaction()).isTrue();
+            return Thread.currentThread().getName();
+        }).join();
+
+        assertThat(worker).startsWith("querydsl-async-").isNotEqualTo(caller);
+    }
+
+    @Test
+    public void cancel() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Long> future = asyncQueryExecutor.submit(queryFactory -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return queryFactory.select(member.count()).from(member).fetchOne();
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThat(future.cancel(true)).isTrue();
+
+        assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+        release.countDown();
+    }
+
+    @Test
+    public void cancelStopsRunningStatement() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        CompletableFuture<Object> future = asyncQueryExecutor.submit(queryFactory -> {
+            started.countDown();
+            try {
+                // 취소하지 않으면 수 분 동안 실행되는 쿼리
+                return em.createNativeQuery("select sum(x) from system_range(1, 100000000000)").getSingleResult();
+            } finally {
+                finished.countDown();
+            }
+        }, Duration.ofMinutes(5));
+        started.await(5, TimeUnit.SECONDS);
+        Thread.sleep(200); // 쿼리가 DB 에서 실행될 때까지
+
+        long start = System.nanoTime();
+        assertThat(future.cancel(true)).isTrue();
+
+        // Statement 가 취소되어 작업 스레드가 바로 끝난다.
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+    }
+}
@@ -0,0 +1,197 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryCountScope;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class QuerydslPagerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    QuerydslPager pager;
+
+    @Autowired
+    NPlusOneDetector detector;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    public void countQueryStripsOrderByAndToOneJoin() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .orderBy(member.username.desc());
+
+        String countJpql = pager.countQuery(query).toString().toLowerCase();
+        System.out.println("countJpql = " + countJpql);
+
+        assertThat(countJpql).contains("count(*)");
+        assertThat(countJpql).doesNotContain("order by", "fetch", "team");
+        assertThat(pager.countQuery(query).fetchOne()).isEqualTo(5L);
+    }
+
+    @Test
+    public void countQueryKeepsReferencedJoin() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("teamA"));
+
+        String countJpql = pager.countQuery(query).toString().toLowerCase();
+
+        assertThat(countJpql).contains("left join member1.team as team");
+        assertThat(pager.countQuery(query).fetchOne()).isEqualTo(2L);
+    }
+
+    @Test
+    public void countQueryKeepsInnerJoin() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .join(member.team, team);
+
+        // inner join 은 team 이 없는 회원을 걸러내므로 유지해야한다.
+        assertThat(pager.countQuery(query).fetchOne()).isEqualTo(4L);
+    }
+
+    // 파라미터(Param)도 count 쿼리에 복사한다.
+    @Test
+    public void countQueryKeepsParams() {
+        Param<String> teamName = new Param<>(String.class, "teamName");
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .join(member.team, team)
+                .where(team.name.eq(teamName))
+                .set(teamName, "teamA");
+
+        assertThat(pager.countQuery(query).fetchOne()).isEqualTo(2L);
+        assertThat(pager.page(query, PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+    }
+
+    // 동시 count 는 별도 EntityManager(커넥션)에서 실행되어 커밋된 row 만 센다.
+    @Test
+    public void parallelCountSeesOnlyCommittedRows() {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Long> committed = requiresNew.execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                Member m = new Member("parallel" + i, i);
+                em.persist(m);
+                ids.add(m.getId());
+            }
+            return ids;
+        });
+        try {
+            em.persist(new Member("parallel4", 4)); // 현재 트랜잭션에서만 보인다.
+
+            JPAQuery<Member> query = queryFactory
+                    .selectFrom(member)
+                    .where(member.username.startsWith("parallel"))
+                    .orderBy(member.username.asc());
+
+            Page<Member> parallel = pager.pageWithParallelCount(query, PageRequest.of(0, 2));
+            assertThat(parallel.getContent()).extracting("username").containsExactly("parallel1", "parallel2");
+            assertThat(parallel.getTotalElements()).isEqualTo(3);
+
+            assertThat(pager.page(query, PageRequest.of(0, 2)).getTotalElements()).isEqualTo(4);
+        } finally {
+            requiresNew.executeWithoutResult(status -> queryFactory
+                    .delete(member)
+                    .where(member.id.in(committed))
+                    .execute());
+        }
+    }
+
+    @Test
+    public void groupByCount() {
+        JPAQuery<String> query = queryFactory
+                .select(team.name)
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name);
+
+        Page<String> page = pager.page(query, PageRequest.of(0, 1));
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void page() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .orderBy(member.username.desc());
+
+        Page<Member> page = pager.page(query, PageRequest.of(1, 2));
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent())
+                .extracting("username")
+                .containsExactly("member3", "member2");
+    }
+
+    @Test
+    public void lastPageSkipsCount() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .orderBy(member.username.desc());
+
+        em.flush(); // insert 가 구간에 섞이지 않게
+
+        // 마지막 페이지 -> offset + content 크기로 전체 개수를 계산한다. (count 쿼리 없음)
+        Page<Member> page;
+        try (QueryCountScope scope = detector.start(Integer.MAX_VALUE, NPlusOneDetector.Mode.LOG)) {
+            page = pager.page(query, PageRequest.of(2, 2));
+            assertThat(scope.getStatements()).isEqualTo(1);
+            assertThat(scope.getSelectShapes()).noneMatch(shape -> shape.contains("count("));
+        }
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,187 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.repository.support.SubqueryRewriter.Rewrite;
+
+import javax.persistence.EntityManager;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class SubqueryRewriterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SubqueryRewriter rewriter;
+
+    @Autowired
+    QueryMetrics queryMetrics;
+
+    JPAQueryFactory queryFactory;
+
+    QMember memberSub = new QMember("memberSub");
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @Test
+    public void scalarMax() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .where(member.age.eq(
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)));
+
+        JPAQuery<Member> rewritten = rewriter.rewrite(query, EnumSet.of(Rewrite.SCALAR_PRECOMPUTE));
+
+        assertThat(rewritten.toString()).doesNotContain("max(");
+        assertThat(rewritten.fetch()).containsExactlyElementsOf(query.fetch());
+    }
+
+    @Test
+    public void scalarAvgComparedWithInt() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .where(member.age.goe(
+                        JPAExpressions
+                                .select(memberSub.age.avg())
+                                .from(memberSub)))
+                .orderBy(member.age.asc());
+
+        JPAQuery<Member> rewritten = rewriter.rewrite(query, EnumSet.of(Rewrite.SCALAR_PRECOMPUTE));
+
+        assertThat(rewritten.toString()).doesNotContain("avg(");
+        assertThat(rewritten.fetch()).containsExactlyElementsOf(query.fetch());
+    }
+
+    @Test
+    public void inToExists() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .where(member.age.in(
+                        JPAExpressions
+                                .select(memberSub.age)
+                                .from(memberSub)
+                                .where(memberSub.age.gt(10))))
+                .orderBy(member.age.asc());
+
+        JPAQuery<Member> rewritten = rewriter.rewrite(query, EnumSet.of(Rewrite.IN_TO_EXISTS));
+
+        assertThat(rewritten.toString()).contains("exists (select 1").doesNotContain(" in (");
+        assertThat(rewritten.fetch()).containsExactlyElementsOf(query.fetch());
+    }
+
+    @Test
+    public void selectClauseKeepsTupleKeys() {
+        JPAQuery<Tuple> query = queryFactory
+                .select(member.username,
+                        JPAExpressions
+                                .select(memberSub.age.avg())
+                                .from(memberSub))
+                .from(member)
+                .where(member.username.eq("member1"));
+
+        List<Tuple> result = rewriter.rewrite(query, EnumSet.allOf(Rewrite.class)).fetch();
+        Tuple expected = query.fetchOne();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).get(member.username)).isEqualTo("member1");
+        assertThat(((Number) result.get(0).get(1, Object.class)).doubleValue())
+                .isEqualTo(((Number) expected.get(1, Object.class)).doubleValue());
+    }
+
+    @Test
+    public void correlatedSubqueryIsNotPrecomputed() {
+        // 같은 팀의 최고 나이
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .where(member.age.eq(
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)
+                                .where(memberSub.team.eq(member.team))))
+                .orderBy(member.age.asc());
+
+        JPAQuery<Member> rewritten = rewriter.rewrite(query, EnumSet.of(Rewrite.SCALAR_PRECOMPUTE));
+
+        assertThat(rewritten.toString()).contains("max(");
+        assertThat(rewritten.fetch()).containsExactlyElementsOf(query.fetch());
+    }
+
+    // in 의 오른쪽 집계 서브쿼리는 값으로 바꾸지 않는다. ("in 40" 은 JPQL 문법 오류)
+    @Test
+    public void inWithMaxSubqueryIsNotPrecomputed() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .where(member.age.in(
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)));
+
+        JPAQuery<Member> rewritten = rewriter.rewrite(query, EnumSet.of(Rewrite.SCALAR_PRECOMPUTE));
+
+        assertThat(rewritten.toString()).contains(" in (select max(");
+        assertThat(rewritten.fetch()).extracting(Member::getUsername).containsExactly("member4");
+    }
+
+    // 팩토리 기본값으로 재작성하고, 쿼리 타입(메트릭)은 유지한다.
+    @Test
+    public void factoryAppliesDefaults() {
+        SubqueryRewriter scalar = new SubqueryRewriter(em, EnumSet.of(Rewrite.SCALAR_PRECOMPUTE));
+        JPAQueryFactory factory = new MeteredJPAQueryFactory(em, queryMetrics, scalar);
+
+        JPAQuery<Member> query = factory
+                .selectFrom(member)
+                .where(member.age.eq(
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)));
+
+        assertThat(query).isInstanceOf(MeteredJPAQuery.class);
+        assertThat(query.toString()).doesNotContain("max(");
+        assertThat(query.fetch()).extracting(Member::getUsername).containsExactly("member4");
+
+        JPAQuery<Member> original = scalar.rewrite(query, EnumSet.noneOf(Rewrite.class));
+        assertThat(original).isInstanceOf(MeteredJPAQuery.class);
+        assertThat(original.toString()).contains("max(");
+    }
+
+    @Test
+    public void disabledByDefault() {
+        JPAQuery<Member> query = queryFactory.selectFrom(member);
+
+        assertThat(rewriter.rewrite(query)).isSameAs(query);
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class MemberBulkServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkService memberBulkService;
+
+    Team teamA;
+    Member member1;
+    Member member2;
+    Member member3;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        member1 = new Member("member1", 10, teamA);
+        member2 = new Member("member2", 20, teamA);
+        member3 = new Member("member3", 30, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+    }
+
+    @Test
+    public void addAge_refresh() {
+        BulkResult result = memberBulkService.addAge(teamA.getId(), 1, 1, MemberBulkService.Reconcile.REFRESH);
+
+        assertThat(result.getAffected()).isEqualTo(2);
+        assertThat(result.getChunks()).hasSize(2); // chunkSize 1 -> 회원별 chunk
+
+        // 영향받은 엔티티만 DB 값으로 갱신된다.
+        assertThat(em.contains(member1)).isTrue();
+        assertThat(member1.getAge()).isEqualTo(11);
+        assertThat(member2.getAge()).isEqualTo(21);
+        assertThat(member3.getAge()).isEqualTo(30);
+    }
+
+    // 다른 팀 회원 때문에 id 가 드문드문해도 chunk 는 실제 회원 id 로 나뉜다.
+    @Test
+    public void chunksFollowRealIds() {
+        Team teamB = member3.getTeam();
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("other" + i, 1, teamB));
+        }
+        Member member4 = new Member("member4", 40, teamA);
+        em.persist(member4);
+
+        BulkResult result = memberBulkService.addAge(teamA.getId(), 1, 2, MemberBulkService.Reconcile.EVICT);
+
+        assertThat(result.getAffected()).isEqualTo(3);
+        assertThat(result.getChunks())
+                .extracting(BulkResult.Chunk::getFromId, BulkResult.Chunk::getToId, BulkResult.Chunk::getAffected)
+                .containsExactly(
+                        tuple(member1.getId(), member2.getId(), 2L),
+                        tuple(member4.getId(), member4.getId(), 1L));
+    }
+
+    @Test
+    public void addAge_evict() {
+        BulkResult result = memberBulkService.addAge(teamA.getId(), 5, 100, MemberBulkService.Reconcile.EVICT);
+
+        assertThat(result.getAffected()).isEqualTo(2);
+        assertThat(result.getChunks()).hasSize(1);
+
+        assertThat(em.contains(member1)).isFalse();
+        assertThat(em.contains(member3)).isTrue(); // 다른 팀은 그대로
+        assertThat(em.find(Member.class, member1.getId()).getAge()).isEqualTo(15);
+    }
+
+    @Test
+    public void deleteByTeam() {
+        BulkResult result = memberBulkService.deleteByTeam(teamA.getId(), 100);
+
+        assertThat(result.getAffected()).isEqualTo(2);
+        assertThat(em.contains(member1)).isFalse();
+        assertThat(em.find(Member.class, member1.getId())).isNull();
+        assertThat(teamA.getMembers()).isEmpty();
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberExportService.Format;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("mem")
+@Transactional
+class MemberExportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    MemberSearchCondition condition;
+
+    @BeforeEach
+    public void before() {
+        Team team = new Team("exportTeam");
+        em.persist(team);
+        for (int i = 0; i < 2500; i++) {
+            em.persist(new Member("export" + i, i % 100, team));
+        }
+        em.persist(new Member("export,\"quoted\"", 1, team));
+        em.flush();
+        em.clear();
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("exportTeam");
+    }
+
+    @Test
+    public void json() {
+        CountingOutputStream out = new CountingOutputStream();
+
+        long rows = memberExportService.export(condition, Format.JSON, out);
+
+        assertThat(rows).isEqualTo(2501);
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertThat(json).startsWith("[{\"username\":\"export0\",\"age\":0}").endsWith("]");
+        assertThat(out.flushes).isGreaterThanOrEqualTo(3); // chunk(1000) 마다 flush
+    }
+
+    @Test
+    public void csv() {
+        CountingOutputStream out = new CountingOutputStream();
+        condition.setAgeLoe(1);
+
+        long rows = memberExportService.export(condition, Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines[0]).isEqualTo("username,age");
+        assertThat(lines).hasSize((int) rows + 1)
+                .contains("export0,0", "export1,1", "\"export,\"\"quoted\"\"\",1");
+    }
+
+    @Test
+    public void timeoutWhileClientIsSlow() {
+        // 1 row 마다 flush, 1초 제한, flush 한번에 300ms 걸리는 클라이언트
+        MemberExportService slowExport = new MemberExportService(queryFactory, em, objectMapper, transactionManager, 1, 1);
+        CountingOutputStream out = new CountingOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.flush();
+            }
+        };
+
+        try {
+            assertThatThrownBy(() -> slowExport.export(condition, Format.CSV, out))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("timed out");
+        } finally {
+            slowExport.destroy();
+        }
+        assertThat(out.flushes).isLessThan(10);
+    }
+
+    static class CountingOutputStream extends ByteArrayOutputStream {
+        int flushes;
+
+        @Override
+        public void flush() throws IOException {
+            flushes++;
+            super.flush();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package study.querydsl.statistics;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamMemberStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkService;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/*
+ * 통계는 커밋된 뒤에 반영되므로 트랜잭션을 직접 커밋하고 끝나면 지운다.
+ * 다른 테스트가 벌크 연산으로 지운 데이터가 남아 있을 수 있으므로 시작 전에 rebuild 한다.
+ * */
+@SpringBootTest
+@ActiveProfiles("mem")
+class TeamStatisticsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamStatistics teamStatistics;
+
+    @Autowired
+    TeamStatisticsReconciler reconciler;
+
+    @Autowired
+    MemberBulkService memberBulkService;
+
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        reconciler.rebuild();
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("statsTeamA");
+            Team teamB = new Team("statsTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("stats1", 10, teamA));
+            em.persist(new Member("stats2", 20, teamA));
+            em.persist(new Member("stats3", 30, teamB));
+            em.persist(new Member("stats4", 40, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("stats")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("statsTeam")).execute();
+        });
+        reconciler.rebuild();
+    }
+
+    @Test
+    public void insert() {
+        assertThat(teamStatistics.get(teamAId)).contains(new TeamMemberStats(teamAId, 2, 30, 10, 20));
+        assertThat(teamStatistics.get(teamBId)).contains(new TeamMemberStats(teamBId, 2, 70, 30, 40));
+        assertThat(reconciler.verify()).isEmpty();
+    }
+
+    @Test
+    public void ageChangeAndDelete() {
+        transactionTemplate.executeWithoutResult(status -> {
+            member("stats2").setAge(5);
+            em.remove(member("stats1"));
+        });
+
+        assertThat(teamStatistics.get(teamAId)).contains(new TeamMemberStats(teamAId, 1, 5, 5, 5));
+        assertThat(reconciler.verify()).isEmpty();
+    }
+
+    @Test
+    public void changeTeam() {
+        transactionTemplate.executeWithoutResult(status ->
+                member("stats4").changeTeam(em.find(Team.class, teamAId)));
+
+        assertThat(teamStatistics.get(teamAId)).contains(new TeamMemberStats(teamAId, 3, 70, 10, 40));
+        assertThat(teamStatistics.get(teamBId)).contains(new TeamMemberStats(teamBId, 1, 30, 30, 30)); // max 40 -> 30
+        assertThat(reconciler.verify()).isEmpty();
+    }
+
+    @Test
+    public void rollbackIsNotApplied() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("stats5", 99, em.find(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamStatistics.get(teamAId).get().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void verifyAndRebuild() {
+        // 벌크 연산은 리스너를 거치지 않는다.
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, 50)
+                .where(member.username.eq("stats1"))
+                .execute());
+
+        assertThat(reconciler.verify()).containsExactly(teamAId);
+
+        reconciler.reconcile();
+
+        assertThat(reconciler.verify()).isEmpty();
+        assertThat(teamStatistics.get(teamAId)).contains(new TeamMemberStats(teamAId, 2, 70, 20, 50));
+    }
+
+    @Test
+    public void bulkOperationInsideTransaction() {
+        // 벌크 연산이 호출한 쪽 트랜잭션에 참여하면 커밋된 뒤에 팀을 다시 만든다.
+        transactionTemplate.executeWithoutResult(status ->
+                memberBulkService.addAge(teamAId, 1, 100, MemberBulkService.Reconcile.EVICT));
+
+        assertThat(teamStatistics.get(teamAId)).contains(new TeamMemberStats(teamAId, 2, 32, 11, 21));
+
+        transactionTemplate.executeWithoutResult(status -> memberBulkService.deleteByTeam(teamBId, 100));
+
+        assertThat(teamStatistics.get(teamBId)).isEmpty();
+        assertThat(reconciler.verify()).isEmpty();
+    }
+
+        private Member member(String username) {
+        return new JPAQueryFactory(em)
+                .selectFrom(member)
+                .where(member.username.eq(username))
+                .fetchOne();
+    }
+}